@@ -34,6 +34,8 @@ dependencies {
 	//noinspection GradleDependency
 	implementation("androidx.appcompat:appcompat:1.2.0")
 	testImplementation("org.testng:testng:6.9.6")
+	testImplementation(project(":DataCartonProcessor"))
+	testImplementation("com.google.testing.compile:compile-testing:0.21.0")
 
 	compileOnly(project(":Core"))
 	testImplementation(project(":Core"))
@@ -0,0 +1,105 @@
+package collections
+
+/**
+ * a ring buffer of up to [capacity] doubles, offering a new value to a full buffer evicts the oldest
+ *
+ * [sum], [mean], [variance], [min] and [max] of the values in the buffer are O(1)
+ */
+open class DoubleRingBuffer(capacity: Int) : PrimitiveRingBuffer(capacity) {
+	private val values = DoubleArray(capacity)
+	private var sum = 0.0
+	private var sumOfSquares = 0.0
+	private var removals = 0
+
+	open fun offer(value: Double) {
+		write(value)
+	}
+
+	/**
+	 * adds [value], returning the slot it was written to
+	 */
+	protected fun write(value: Double): Int {
+		val slot = reserve()
+		values[slot] = value
+		sum += value
+		sumOfSquares += value * value
+		commit()
+		return slot
+	}
+
+	/**
+	 * removes and returns the oldest value
+	 */
+	fun poll(): Double = values[removeOldest()]
+
+	/**
+	 * the oldest value
+	 */
+	fun peek(): Double = values[oldestSlot]
+
+	/**
+	 * the newest value
+	 */
+	fun peekLast(): Double = values[newestSlot]
+
+	/**
+	 * the [index]th oldest value
+	 */
+	operator fun get(index: Int): Double = values[slotOf(index)]
+
+	fun sum(): Double = sum
+
+	fun mean(): Double {
+		if (isEmpty()) throw NoSuchElementException("buffer is empty")
+		return sum / size
+	}
+
+	/**
+	 * the population variance of the values in the buffer
+	 */
+	fun variance(): Double {
+		val mean = mean()
+		return (sumOfSquares / size - mean * mean).coerceAtLeast(0.0)
+	}
+
+	fun min(): Double = values[minimumSlot]
+
+	fun max(): Double = values[maximumSlot]
+
+	/**
+	 * copies the values, oldest first, into [destination]
+	 *
+	 * @return the number of values copied
+	 */
+	fun copyInto(destination: DoubleArray): Int {
+		val count = size.coerceAtMost(destination.size)
+		for (i in 0 until count) destination[i] = get(i)
+		return count
+	}
+
+	override fun onRemove(slot: Int) {
+		val value = values[slot]
+		sum -= value
+		sumOfSquares -= value * value
+		// the running totals pick up rounding error as values come and go, so they get recalculated every time the buffer turns over
+		if (++removals == capacity) {
+			removals = 0
+			sum = 0.0
+			sumOfSquares = 0.0
+			for (i in 1 until size) {
+				val remaining = get(i)
+				sum += remaining
+				sumOfSquares += remaining * remaining
+			}
+		}
+	}
+
+	override fun compare(a: Int, b: Int) = values[a].compareTo(values[b])
+
+	override fun clear() {
+		super.clear()
+		sum = 0.0
+		sumOfSquares = 0.0
+		removals = 0
+	}
+}
@@ -0,0 +1,74 @@
+package collections
+
+/**
+ * a ring buffer of up to [capacity] ints, offering a new value to a full buffer evicts the oldest
+ *
+ * [sum], [mean], [min] and [max] of the values in the buffer are O(1)
+ */
+class IntRingBuffer(capacity: Int) : PrimitiveRingBuffer(capacity) {
+	private val values = IntArray(capacity)
+	private var sum = 0L
+
+	fun offer(value: Int) {
+		val slot = reserve()
+		values[slot] = value
+		sum += value
+		commit()
+	}
+
+	/**
+	 * removes and returns the oldest value
+	 */
+	fun poll(): Int = values[removeOldest()]
+
+	/**
+	 * the oldest value
+	 */
+	fun peek(): Int = values[oldestSlot]
+
+	/**
+	 * the newest value
+	 */
+	fun peekLast(): Int = values[newestSlot]
+
+	/**
+	 * the [index]th oldest value
+	 */
+	operator fun get(index: Int): Int = values[slotOf(index)]
+
+	/**
+	 * the sum is kept as a long, so it can't overflow
+	 */
+	fun sum(): Long = sum
+
+	fun mean(): Double {
+		if (isEmpty()) throw NoSuchElementException("buffer is empty")
+		return sum.toDouble() / size
+	}
+
+	fun min(): Int = values[minimumSlot]
+
+	fun max(): Int = values[maximumSlot]
+
+	/**
+	 * copies the values, oldest first, into [destination]
+	 *
+	 * @return the number of values copied
+	 */
+	fun copyInto(destination: IntArray): Int {
+		val count = size.coerceAtMost(destination.size)
+		for (i in 0 until count) destination[i] = get(i)
+		return count
+	}
+
+	override fun onRemove(slot: Int) {
+		sum -= values[slot]
+	}
+
+	override fun compare(a: Int, b: Int) = values[a].compareTo(values[b])
+
+	override fun clear() {
+		super.clear()
+		sum = 0L
+	}
+}
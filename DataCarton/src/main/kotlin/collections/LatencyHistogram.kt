@@ -0,0 +1,70 @@
+package collections
+
+import kotlin.math.ceil
+
+/**
+ * a log-linear histogram of durations in nanoseconds, in the style of HdrHistogram, recording is O(1) and doesn't allocate
+ *
+ * each power of two is split into 2^[subBucketBits] buckets, so percentiles are accurate to within 1 / 2^[subBucketBits] of their value, values above [highestTrackableValue] are counted as [highestTrackableValue]
+ *
+ * not thread safe, values should be recorded from one thread, reads from other threads may be slightly out of date
+ */
+class LatencyHistogram @JvmOverloads constructor(val subBucketBits: Int = 5, val highestTrackableValue: Long = 1L shl 32) {
+	init {
+		require(subBucketBits in 1..16) { "subBucketBits must be between 1 and 16, was $subBucketBits" }
+		require(highestTrackableValue > 0) { "highestTrackableValue must be greater than 0, was $highestTrackableValue" }
+	}
+
+	private val subBucketCount = 1 shl subBucketBits
+	private val counts = IntArray(indexOf(highestTrackableValue) + 1)
+
+	var count = 0L
+		private set
+
+	var max = 0L
+		private set
+
+	private fun indexOf(value: Long): Int {
+		if (value < subBucketCount) return value.toInt()
+		val magnitude = 63 - java.lang.Long.numberOfLeadingZeros(value) - subBucketBits
+		val subBucket = (value ushr magnitude).toInt()
+		return (magnitude + 1) * subBucketCount + (subBucket - subBucketCount)
+	}
+
+	/**
+	 * the largest value that would be counted in the same bucket as [index]
+	 */
+	private fun highestValueAt(index: Int): Long {
+		if (index < subBucketCount) return index.toLong()
+		val magnitude = index / subBucketCount - 1
+		val subBucket = (index % subBucketCount + subBucketCount).toLong()
+		return ((subBucket + 1) shl magnitude) - 1
+	}
+
+	fun record(nanos: Long) {
+		val value = nanos.coerceIn(0L, highestTrackableValue)
+		counts[indexOf(value)]++
+		count++
+		if (value > max) max = value
+	}
+
+	/**
+	 * the value that [percentile] percent of recorded values are less than or equal to, 0 if nothing has been recorded
+	 */
+	fun percentile(percentile: Double): Long {
+		if (count == 0L) return 0L
+		val target = ceil(percentile / 100.0 * count).toLong().coerceIn(1L, count)
+		var seen = 0L
+		for (i in counts.indices) {
+			seen += counts[i]
+			if (seen >= target) return highestValueAt(i).coerceAtMost(max)
+		}
+		return max
+	}
+
+	fun reset() {
+		counts.fill(0)
+		count = 0L
+		max = 0L
+	}
+}
@@ -1,8 +1,6 @@
 package collections
 
 import java.util.*
-import kotlin.math.abs
-import kotlin.math.max
 
 @Suppress("unused", "UNCHECKED_CAST")
 class LimitedQueue<T>(capacity: Int) : AbstractQueue<T?>() {
@@ -29,6 +27,12 @@ class LimitedQueue<T>(capacity: Int) : AbstractQueue<T?>() {
 	override val size: Int
 		get() = currentLen;
 
+	/**
+	 * the maximum number of elements held before the oldest are evicted
+	 */
+	val capacity: Int
+		get() = array.size
+
 	override fun offer(t: T?): Boolean {
 		if (t == null) return false
 		array[endIndex] = t
@@ -42,12 +46,11 @@ class LimitedQueue<T>(capacity: Int) : AbstractQueue<T?>() {
 	}
 
 	override fun poll(): T? {
+		if (currentLen == 0) return null
 		val result = array[startIndex]
 		array[startIndex] = null
 		currentLen--
-		currentLen = max(0.0, currentLen.toDouble()).toInt()
-		startIndex++
-		startIndex %= array.size
+		startIndex = (startIndex + 1) % array.size
 		return result
 	}
 
@@ -55,8 +58,32 @@ class LimitedQueue<T>(capacity: Int) : AbstractQueue<T?>() {
 		return array[startIndex]
 	}
 
+	/**
+	 * the [index]th oldest element
+	 */
+	operator fun get(index: Int): T {
+		if (index < 0 || index >= currentLen) throw IndexOutOfBoundsException("index: $index, size: $currentLen")
+		return array[(startIndex + index) % array.size]!!
+	}
+
+	/**
+	 * removes the [index]th oldest element, moving the newer elements back to fill the gap
+	 */
+	private fun removeAt(index: Int) {
+		for (i in index until currentLen - 1) {
+			array[(startIndex + i) % array.size] = array[(startIndex + i + 1) % array.size]
+		}
+		array[(startIndex + currentLen - 1) % array.size] = null
+		currentLen--
+	}
+
+	override fun clear() {
+		Arrays.fill(array, null)
+		startIndex = 0
+		currentLen = 0
+	}
+
 	class LimitedQueueIterator<T>(private val queue: LimitedQueue<T>) : MutableIterator<T> {
-		private val startIndex: Int = queue.startIndex
 		private var index = 0
 
 		override fun hasNext(): Boolean {
@@ -64,42 +91,32 @@ class LimitedQueue<T>(capacity: Int) : AbstractQueue<T?>() {
 		}
 
 		override fun next(): T {
-			return queue.array[(startIndex + index++) % queue.size]!!
+			if (!hasNext()) throw NoSuchElementException()
+			return queue[index++]
 		}
 
 		override fun remove() {
-			val i = (startIndex + --index) % queue.size
-			queue.remove(queue.array[i])
-			queue.currentLen--
+			check(index > 0) { "next has not been called" }
+			queue.removeAt(--index)
 		}
 	}
 
 	class ReverseLimitedQueueIterator<T>(private val queue: LimitedQueue<T>) : MutableIterator<T> {
-		private val startIndex: Int
-		private var index: Int
-
-		init {
-			var startIndex = queue.endIndex - 1
-			if (startIndex < 0) startIndex += queue.size
-			this.startIndex = startIndex
-			index = 0
-		}
+		private var index = queue.size - 1
 
 		override fun hasNext(): Boolean {
-			return abs(index.toDouble()) < queue.size
+			return index >= 0
 		}
 
 		override fun next(): T {
-			var i = (startIndex + index--) % queue.size
-			if (i < 0) i += queue.size
-			return queue.array[i]!!
+			if (!hasNext()) throw NoSuchElementException()
+			return queue[index--]
 		}
 
 		override fun remove() {
-			var i = (startIndex + index + 1) % queue.size
-			if (i < 0) i += queue.size
-			queue.array[i] = null
-			queue.currentLen--
+			check(index < queue.size - 1) { "next has not been called" }
+			// the elements before index don't move, so the position of the next element is unchanged
+			queue.removeAt(index + 1)
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,71 @@
+package collections
+
+/**
+ * a ring buffer of up to [capacity] longs, offering a new value to a full buffer evicts the oldest
+ *
+ * [sum], [mean], [min] and [max] of the values in the buffer are O(1)
+ */
+class LongRingBuffer(capacity: Int) : PrimitiveRingBuffer(capacity) {
+	private val values = LongArray(capacity)
+	private var sum = 0L
+
+	fun offer(value: Long) {
+		val slot = reserve()
+		values[slot] = value
+		sum += value
+		commit()
+	}
+
+	/**
+	 * removes and returns the oldest value
+	 */
+	fun poll(): Long = values[removeOldest()]
+
+	/**
+	 * the oldest value
+	 */
+	fun peek(): Long = values[oldestSlot]
+
+	/**
+	 * the newest value
+	 */
+	fun peekLast(): Long = values[newestSlot]
+
+	/**
+	 * the [index]th oldest value
+	 */
+	operator fun get(index: Int): Long = values[slotOf(index)]
+
+	fun sum(): Long = sum
+
+	fun mean(): Double {
+		if (isEmpty()) throw NoSuchElementException("buffer is empty")
+		return sum.toDouble() / size
+	}
+
+	fun min(): Long = values[minimumSlot]
+
+	fun max(): Long = values[maximumSlot]
+
+	/**
+	 * copies the values, oldest first, into [destination]
+	 *
+	 * @return the number of values copied
+	 */
+	fun copyInto(destination: LongArray): Int {
+		val count = size.coerceAtMost(destination.size)
+		for (i in 0 until count) destination[i] = get(i)
+		return count
+	}
+
+	override fun onRemove(slot: Int) {
+		sum -= values[slot]
+	}
+
+	override fun compare(a: Int, b: Int) = values[a].compareTo(values[b])
+
+	override fun clear() {
+		super.clear()
+		sum = 0L
+	}
+}
@@ -0,0 +1,142 @@
+package collections
+
+/**
+ * the bookkeeping shared by the primitive ring buffers, which hold up to [capacity] elements, evicting the oldest when full
+ *
+ * elements are addressed by sequence number, which counts up as elements are offered, so the buffers never allocate after construction
+ *
+ * the minimum and maximum of the elements in the buffer are tracked with monotonic queues, so they are O(1) to read, and amortised O(1) to maintain
+ */
+abstract class PrimitiveRingBuffer(val capacity: Int) {
+	init {
+		require(capacity > 0) { "capacity must be greater than 0, was $capacity" }
+	}
+
+	// sequence number of the oldest element
+	private var head = 0L
+	// sequence number the next element will be given
+	private var tail = 0L
+
+	val size: Int
+		get() = (tail - head).toInt()
+
+	fun isEmpty() = head == tail
+
+	fun isFull() = size == capacity
+
+	protected fun slot(sequence: Long) = (sequence % capacity).toInt()
+
+	/**
+	 * the slot of the [index]th oldest element
+	 */
+	protected fun slotOf(index: Int): Int {
+		if (index < 0 || index >= size) throw IndexOutOfBoundsException("index: $index, size: $size")
+		return slot(head + index)
+	}
+
+	protected val oldestSlot: Int
+		get() {
+			if (isEmpty()) throw NoSuchElementException("buffer is empty")
+			return slot(head)
+		}
+
+	protected val newestSlot: Int
+		get() {
+			if (isEmpty()) throw NoSuchElementException("buffer is empty")
+			return slot(tail - 1)
+		}
+
+	protected val minimumSlot: Int
+		get() = slot(minimums.peek())
+
+	protected val maximumSlot: Int
+		get() = slot(maximums.peek())
+
+	/**
+	 * makes room for a new element, evicting the oldest if the buffer is full
+	 *
+	 * @return the slot the new element should be written to, followed by a call to [commit]
+	 */
+	protected fun reserve(): Int {
+		if (isFull()) removeOldest()
+		return slot(tail)
+	}
+
+	/**
+	 * adds the element written to the slot returned by [reserve]
+	 */
+	protected fun commit() {
+		val sequence = tail++
+		minimums.push(sequence)
+		maximums.push(sequence)
+	}
+
+	/**
+	 * removes the oldest element, its value stays in the returned slot until the next call to [reserve]
+	 */
+	protected fun removeOldest(): Int {
+		if (isEmpty()) throw NoSuchElementException("buffer is empty")
+		val sequence = head
+		val slot = slot(sequence)
+		onRemove(slot)
+		minimums.evict(sequence)
+		maximums.evict(sequence)
+		head++
+		return slot
+	}
+
+	/**
+	 * called before the element in [slot] is removed, so running totals can be updated
+	 */
+	protected abstract fun onRemove(slot: Int)
+
+	/**
+	 * compares the elements in slots [a] and [b]
+	 */
+	protected abstract fun compare(a: Int, b: Int): Int
+
+	open fun clear() {
+		head = 0L
+		tail = 0L
+		minimums.clear()
+		maximums.clear()
+	}
+
+	/**
+	 * a queue of sequence numbers, where each element is better than all the ones before it, the front is the best in the buffer
+	 *
+	 * @param sign 1 to track the minimum, -1 to track the maximum
+	 */
+	private inner class MonotonicQueue(private val sign: Int) {
+		private val sequences = LongArray(capacity)
+		private var first = 0
+		private var count = 0
+
+		fun push(sequence: Long) {
+			val slot = slot(sequence)
+			// elements that are no better than the new one can never be the best again
+			while (count > 0 && sign * compare(slot(sequences[(first + count - 1) % capacity]), slot) >= 0) count--
+			sequences[(first + count) % capacity] = sequence
+			count++
+		}
+
+		fun evict(sequence: Long) {
+			if (count == 0 || sequences[first] != sequence) return
+			first = (first + 1) % capacity
+			count--
+		}
+
+		fun peek(): Long {
+			if (count == 0) throw NoSuchElementException("buffer is empty")
+			return sequences[first]
+		}
+
+		fun clear() {
+			first = 0
+			count = 0
+		}
+	}
+
+	private val minimums = MonotonicQueue(1)
+	private val maximums = MonotonicQueue(-1)
+}
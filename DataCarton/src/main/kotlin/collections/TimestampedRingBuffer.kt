@@ -0,0 +1,75 @@
+package collections
+
+/**
+ * a [DoubleRingBuffer] that also records the time each value was sampled at, in nanoseconds, timestamps are stored in their own array alongside the values
+ *
+ * timestamps are expected to be offered in increasing order, such as from [System.nanoTime]
+ */
+class TimestampedRingBuffer(capacity: Int) : DoubleRingBuffer(capacity) {
+	private val timestamps = LongArray(capacity)
+
+	/**
+	 * adds [value], timestamped now
+	 */
+	override fun offer(value: Double) {
+		offer(System.nanoTime(), value)
+	}
+
+	fun offer(timestamp: Long, value: Double) {
+		timestamps[write(value)] = timestamp
+	}
+
+	/**
+	 * the timestamp of the [index]th oldest value
+	 */
+	fun timestamp(index: Int): Long = timestamps[slotOf(index)]
+
+	/**
+	 * the timestamp of the oldest value
+	 */
+	fun peekTimestamp(): Long = timestamps[oldestSlot]
+
+	/**
+	 * the timestamp of the newest value
+	 */
+	fun peekLastTimestamp(): Long = timestamps[newestSlot]
+
+	/**
+	 * the time between the oldest and newest values, in nanoseconds
+	 */
+	fun span(): Long = peekLastTimestamp() - peekTimestamp()
+
+	/**
+	 * removes values sampled before [timestamp], used to keep the buffer to a window of time
+	 *
+	 * @return the number of values removed
+	 */
+	fun removeOlderThan(timestamp: Long): Int {
+		var removed = 0
+		while (!isEmpty() && peekTimestamp() < timestamp) {
+			poll()
+			removed++
+		}
+		return removed
+	}
+
+	/**
+	 * the average rate of change between the oldest and newest values, per second, 0 if the buffer spans no time
+	 */
+	fun rate(): Double {
+		val span = span()
+		if (span == 0L) return 0.0
+		return (peekLast() - peek()) * 1E9 / span
+	}
+
+	/**
+	 * copies the timestamps, oldest first, into [destination]
+	 *
+	 * @return the number of timestamps copied
+	 */
+	fun copyTimestampsInto(destination: LongArray): Int {
+		val count = size.coerceAtMost(destination.size)
+		for (i in 0 until count) destination[i] = timestamp(i)
+		return count
+	}
+}
@@ -0,0 +1,75 @@
+package collections.annotatedtargets
+
+import java.lang.reflect.AccessibleObject
+import java.lang.reflect.Field
+import java.lang.reflect.Method
+
+/**
+ * reads a field or invokes a no parameter method on an instance
+ *
+ * accessors are built once per member and cached by [ClassMetadata], this saves looking members up again, but reads through reflection still box primitive results,
+ * there are no MethodHandles at the minimum api level to avoid that
+ *
+ * members of classes with a generated [ClassBinding] are read directly instead, and their primitive getters are read by [getDouble] without boxing, which is what the [datacarton.Sampler] uses
+ *
+ * [getString] makes a new string every read, renderers compare the strings to see if a line changed
+ */
+abstract class Accessor private constructor() {
+	abstract fun get(instance: Any?): Any?
+
+	open fun getString(instance: Any?): String = get(instance).toString()
+
+	/**
+	 * reads the value as a double, booleans are 1.0 or 0.0, and anything that isn't a number is NaN
+	 */
+	open fun getDouble(instance: Any?): Double = toDouble(get(instance))
+
+	private class FieldAccessor(private val field: Field) : Accessor() {
+		override fun get(instance: Any?): Any? = field.get(instance)
+	}
+
+	private class MethodAccessor(private val method: Method) : Accessor() {
+		override fun get(instance: Any?): Any? = method.invoke(instance)
+	}
+
+	private class BoundFieldAccessor(private val binding: ClassBinding, private val index: Int) : Accessor() {
+		override fun get(instance: Any?): Any? = binding.getField(index, instance)
+	}
+
+	private class BoundMethodAccessor(private val binding: ClassBinding, private val index: Int) : Accessor() {
+		override fun get(instance: Any?): Any? = binding.getMethod(index, instance)
+		override fun getDouble(instance: Any?): Double = binding.getMethodDouble(index, instance)
+	}
+
+	companion object {
+		/**
+		 * converts [value] to a double in the same way as [getDouble]
+		 */
+		@JvmStatic
+		fun toDouble(value: Any?): Double = when (value) {
+			is Number -> value.toDouble()
+			is Boolean -> if (value) 1.0 else 0.0
+			else -> Double.NaN
+		}
+
+		/**
+		 * builds an accessor that reads the [index]th field or method of [binding] directly, without reflection
+		 */
+		@JvmStatic
+		fun bound(binding: ClassBinding, index: Int, method: Boolean): Accessor =
+				if (method) BoundMethodAccessor(binding, index) else BoundFieldAccessor(binding, index)
+
+		/**
+		 * builds a new accessor, prefer [ClassMetadata.accessor], which caches the result
+		 */
+		@JvmStatic
+		fun of(accessibleObject: AccessibleObject): Accessor {
+			accessibleObject.isAccessible = true
+			return when (accessibleObject) {
+				is Field -> FieldAccessor(accessibleObject)
+				is Method -> MethodAccessor(accessibleObject)
+				else -> throw IllegalArgumentException("${accessibleObject.javaClass.simpleName} cannot be accessed, only fields and methods are supported")
+			}
+		}
+	}
+}
@@ -2,9 +2,8 @@ package collections.annotatedtargets
 
 import java.lang.reflect.AccessibleObject
 import java.lang.reflect.Field
-import java.lang.reflect.Method
 import java.lang.reflect.Modifier
-import java.util.Objects
+import java.util.function.DoubleSupplier
 import java.util.function.Supplier
 
 abstract class AnnotatedTarget<O : AccessibleObject, A : Annotation>(
@@ -15,25 +14,45 @@ abstract class AnnotatedTarget<O : AccessibleObject, A : Annotation>(
         defaultAnnotation: A
 ) : GroupedData {
 
+    /**
+     * the cached accessor for [accessibleObject]
+     */
+    val accessor: Accessor = ClassMetadata.accessorFor(accessibleObject)
+
     val childInstance by lazy {
-        if (accessibleObject is Field) {
-            val childInstance = accessibleObject.get(parentInstance.get())
-            if (childInstance is Supplier<*>) {
-                return@lazy childInstance
-            }
-            return@lazy Supplier {
-                accessibleObject.get(parentInstance.get())
-            }
-        } else if (accessibleObject is Method) {
-            val childInstance = accessibleObject.invoke(parentInstance.get())
-            if (childInstance is Supplier<*>) {
-                return@lazy childInstance
-            }
-            return@lazy Supplier {
-                accessibleObject.invoke(parentInstance.get())
-            }
+        val childInstance = accessor.get(parentInstance.get())
+        if (childInstance is Supplier<*>) {
+            return@lazy childInstance
+        }
+        Supplier {
+            accessor.get(parentInstance.get())
+        }
+    }
+
+    /**
+     * the string contents of the child, see [Accessor.getString]
+     */
+    val stringContents: Supplier<String> by lazy {
+        val childInstance = accessor.get(parentInstance.get())
+        if (childInstance is Supplier<*>) {
+            return@lazy Supplier { childInstance.get().toString() }
+        }
+        Supplier {
+            accessor.getString(parentInstance.get())
+        }
+    }
+
+    /**
+     * the contents of the child as a double, see [Accessor.getDouble]
+     */
+    val doubleContents: DoubleSupplier by lazy {
+        val childInstance = accessor.get(parentInstance.get())
+        if (childInstance is Supplier<*>) {
+            return@lazy DoubleSupplier { Accessor.toDouble(childInstance.get()) }
+        }
+        DoubleSupplier {
+            accessor.getDouble(parentInstance.get())
         }
-        Supplier { null }
     }
 
     init {
@@ -0,0 +1,60 @@
+package collections.annotatedtargets
+
+/**
+ * the members of a class that DataCarton's annotations are on, generated at compile time by the DataCartonProcessor annotation processor
+ *
+ * lets [ClassMetadata] skip scanning every member of the class, and read members directly rather than through reflection, classes without a binding fall back to reflection
+ *
+ * @param fields names of the annotated fields
+ * @param boundFields if the field at the same index can be read by [getField], private fields cannot
+ * @param methods names of the annotated no parameter methods
+ * @param boundMethods if the method at the same index can be called by [getMethod]
+ */
+abstract class ClassBinding(
+		val fields: Array<String>,
+		val boundFields: BooleanArray,
+		val methods: Array<String>,
+		val boundMethods: BooleanArray,
+) {
+	/**
+	 * reads the [index]th field in [fields] from [instance]
+	 */
+	abstract fun getField(index: Int, instance: Any?): Any?
+
+	/**
+	 * calls the [index]th method in [methods] on [instance]
+	 */
+	abstract fun getMethod(index: Int, instance: Any?): Any?
+
+	/**
+	 * calls the [index]th method in [methods] on [instance], and converts the result in the same way as [Accessor.getDouble]
+	 *
+	 * bindings override this for methods that return primitives, so that they aren't boxed
+	 */
+	open fun getMethodDouble(index: Int, instance: Any?): Double = Accessor.toDouble(getMethod(index, instance))
+
+	companion object {
+		/**
+		 * appended to the binary name of a class to get the name of its binding, the processor reads this from the classpath, so this is the only copy
+		 */
+		const val SUFFIX = "_DataCartonBinding"
+
+		/**
+		 * the generated binding for [target], or null if it doesn't have one
+		 */
+		@JvmStatic
+		fun find(target: Class<*>): ClassBinding? {
+			return try {
+				Class.forName(target.name + SUFFIX, true, target.classLoader)
+						.getDeclaredConstructor()
+						.newInstance() as? ClassBinding
+			}
+			catch (e: ReflectiveOperationException) {
+				null
+			}
+			catch (e: LinkageError) {
+				null
+			}
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package collections.annotatedtargets
+
+import datacarton.annotations.Data
+import datacarton.annotations.Export
+import datacarton.annotations.Pack
+import java.lang.reflect.AccessibleObject
+import java.lang.reflect.Field
+import java.lang.reflect.Member
+import java.lang.reflect.Method
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * the reflective information DataCarton needs about a single class, computed once and cached for the lifetime of the app
+ *
+ * only covers the members declared on [target], walk [superclass] to cover inherited members
+ *
+ * if [target] has a generated [ClassBinding], only the members it lists are looked up, and they are read through the binding where possible
+ */
+class ClassMetadata private constructor(val target: Class<*>) {
+	/**
+	 * metadata of the superclass, null if the superclass is [Any]
+	 */
+	val superclass: ClassMetadata? by lazy {
+		val parent = target.superclass
+		if (parent == null || parent == Any::class.java) null
+		else of(parent)
+	}
+
+	private val binding = ClassBinding.find(target)
+
+	// the members listed by the binding, paired with their accessor, looked up by name rather than scanning the class
+	private val boundMembers: Map<AccessibleObject, Accessor>? = binding?.let { binding ->
+		val result = LinkedHashMap<AccessibleObject, Accessor>()
+		try {
+			binding.methods.forEachIndexed { index, name ->
+				val method = target.getDeclaredMethod(name)
+				result[method] = if (binding.boundMethods[index]) Accessor.bound(binding, index, true) else Accessor.of(method)
+			}
+			binding.fields.forEachIndexed { index, name ->
+				val field = target.getDeclaredField(name)
+				result[field] = if (binding.boundFields[index]) Accessor.bound(binding, index, false) else Accessor.of(field)
+			}
+			result
+		}
+		// the binding is out of date with the class, fall back to scanning it
+		catch (e: NoSuchMethodException) {
+			null
+		}
+		catch (e: NoSuchFieldException) {
+			null
+		}
+	}
+
+	/**
+	 * all declared methods and fields, only scanned when first needed if [target] has a binding
+	 */
+	val members: List<AccessibleObject> by lazy {
+		listOf<AccessibleObject>(*target.declaredMethods, *target.declaredFields)
+	}
+
+	// the members that could have annotations
+	private val annotatedMembers: Collection<AccessibleObject>
+		get() = boundMembers?.keys ?: members
+
+	/**
+	 * members annotated with [Data]
+	 */
+	val dataMembers: List<AccessibleObject> = annotatedMembers.filter { it.isAnnotationPresent(Data::class.java) }
+
+	/**
+	 * members annotated with [Pack]
+	 */
+	val packMembers: List<AccessibleObject> = annotatedMembers.filter { it.isAnnotationPresent(Pack::class.java) }
+
+	private val exports: Map<AccessibleObject, Export> = annotatedMembers
+			.mapNotNull { member -> member.getAnnotation(Export::class.java)?.let { member to it } }
+			.toMap()
+
+	private val fieldsByName: Map<String, Field> by lazy { target.declaredFields.associateBy { it.name } }
+	private val methodsByName: Map<String, Method> by lazy {
+		target.declaredMethods
+				.filter { it.parameterTypes.isEmpty() }
+				.associateBy { it.name }
+	}
+
+	private val accessors = ConcurrentHashMap<AccessibleObject, Accessor>().also { accessors ->
+		boundMembers?.let { accessors.putAll(it) }
+	}
+
+	/**
+	 * the [Export] annotation on [member], if present
+	 */
+	fun export(member: AccessibleObject): Export? = exports[member]
+
+	/**
+	 * the cached accessor for [member], which must be declared on [target]
+	 */
+	fun accessor(member: AccessibleObject): Accessor {
+		return accessors[member] ?: Accessor.of(member).let { accessors.putIfAbsent(member, it) ?: it }
+	}
+
+	/**
+	 * finds a field by name on this class or its superclasses
+	 */
+	fun findField(name: String): Field? = fieldsByName[name] ?: superclass?.findField(name)
+
+	/**
+	 * finds a no parameter method by name on this class or its superclasses
+	 */
+	fun findMethod(name: String): Method? = methodsByName[name] ?: superclass?.findMethod(name)
+
+	companion object {
+		private val cache = ConcurrentHashMap<Class<*>, ClassMetadata>()
+
+		@JvmStatic
+		fun of(target: Class<*>): ClassMetadata {
+			return cache[target] ?: ClassMetadata(target).let { cache.putIfAbsent(target, it) ?: it }
+		}
+
+		/**
+		 * the cached accessor for a field or method
+		 */
+		@JvmStatic
+		fun accessorFor(member: AccessibleObject): Accessor {
+			val declaringClass = (member as? Member)?.declaringClass ?: return Accessor.of(member)
+			return of(declaringClass).accessor(member)
+		}
+
+		/**
+		 * drops all cached metadata
+		 */
+		@JvmStatic
+		fun clearCache() {
+			cache.clear()
+		}
+	}
+}
@@ -9,51 +9,23 @@ class ImportingPackaged(parentInstance: Supplier<*>, accessibleObject: Accessibl
     val import: Import = accessibleObject.getAnnotation(Import::class.java) ?: throw Exception("internal error, target was not annotated with @Import")
     val includeDefaults = import.includeDefaults
 
+    private val childMetadata by lazy {
+        childInstance.get()?.javaClass?.let { ClassMetadata.of(it) }
+    }
+
     val dataFields by lazy {
-        import.dataFields.mapNotNull {
-            var searchClass = childInstance.get()?.javaClass
-            while (searchClass != null && searchClass != Any::class.java && searchClass != Object::class.java) {
-                val res = childInstance.get()?.javaClass?.getDeclaredField(it)
-                if (res != null) return@mapNotNull res
-                searchClass = searchClass?.superclass
-            }
-            return@mapNotNull null
-        }
+        import.dataFields.mapNotNull { childMetadata?.findField(it) }
     }
 
     val dataMethods by lazy {
-        import.dataMethods.mapNotNull {
-            var searchClass = childInstance.get()?.javaClass
-            while (searchClass != null && searchClass != Any::class.java && searchClass != Object::class.java) {
-                val res = childInstance.get()?.javaClass?.getDeclaredMethod(it)
-                if (res != null) return@mapNotNull res
-                searchClass = searchClass?.superclass
-            }
-            return@mapNotNull null
-        }
+        import.dataMethods.mapNotNull { childMetadata?.findMethod(it) }
     }
 
     val packFields by lazy {
-        import.packFields.mapNotNull {
-            var searchClass = childInstance.get()?.javaClass
-            while (searchClass != null && searchClass != Any::class.java && searchClass != Object::class.java) {
-                val res = childInstance.get()?.javaClass?.getDeclaredField(it)
-                if (res != null) return@mapNotNull res
-                searchClass = searchClass?.superclass
-            }
-            return@mapNotNull null
-        }
+        import.packFields.mapNotNull { childMetadata?.findField(it) }
     }
 
     val packMethods by lazy {
-        import.packMethods.mapNotNull {
-            var searchClass = childInstance.get()?.javaClass
-            while (searchClass != null && searchClass != Any::class.java && searchClass != Object::class.java) {
-                val res = childInstance.get()?.javaClass?.getDeclaredMethod(it)
-                if (res != null) return@mapNotNull res
-                searchClass = searchClass?.superclass
-            }
-            return@mapNotNull null
-        }
+        import.packMethods.mapNotNull { childMetadata?.findMethod(it) }
     }
 }
@@ -4,6 +4,11 @@ interface CartonComponent {
 	fun getData(): Collection<DataLine?>
 	fun add(dataLine: DataLine?)
 
+	/**
+	 * appends the rendered component to [builder], override to avoid building an intermediate string
+	 */
+	fun appendTo(builder: StringBuilder): StringBuilder = builder.append(toString())
+
 	/**
 	 * MUST HAVE A NO PARAM CONSTRUCTOR TO BE USED
 	 */
@@ -8,13 +8,61 @@ class CartonComponentRenderer private constructor(
 		val cartonComponents: Array<CartonComponent?>,
 		private val renderOrder: RenderOrder,
 ) {
+	private val buffer = StringBuilder()
+
+	/**
+	 * false if this renderer's group was not scheduled for the current update, see [DataCarton.DataConfiguration.withPublishRate]
+	 *
+	 * renderers that are not due render their previous output, rather than reading their data again
+	 */
+	var due = true
+		internal set
+
+	/**
+	 * the minimum time between publications of this group, in nanoseconds, 0 if it publishes every update
+	 */
+	var publishPeriod = 0L
+		internal set
+
+	/**
+	 * groups with a higher priority are published first
+	 */
+	var priority = 0
+		internal set
+
+	internal var lastPublished = 0L
+	private val lastRender = StringBuilder()
+
 	override fun toString(): String {
-		val builder = StringBuilder(title).append("\n")
+		buffer.setLength(0)
+		return appendTo(buffer).toString()
+	}
+
+	/**
+	 * appends the title and rendered components to [builder], without building intermediate strings
+	 */
+	fun appendTo(builder: StringBuilder): StringBuilder {
+		if (!due) return builder.append(lastRender)
+		val start = builder.length
+		builder.append(title).append('\n')
 		for (component in cartonComponents) {
 			if (component == null) continue
-			builder.append(component)
+			component.appendTo(builder)
+		}
+		// only rate limited groups ever need to reuse their output
+		if (publishPeriod != 0L) {
+			lastRender.setLength(0)
+			lastRender.append(builder, start, builder.length)
 		}
-		return builder.toString()
+		return builder
+	}
+
+	/**
+	 * if this renderer has a component of [traceClass]
+	 */
+	fun has(traceClass: Class<out CartonComponent?>): Boolean {
+		val entry = renderOrder.getEntry(traceClass)?.component1() ?: return false
+		return cartonComponents[entry] != null
 	}
 
 	fun add(traceClass: Class<out CartonComponent?>, dataLine: DataLine?) {
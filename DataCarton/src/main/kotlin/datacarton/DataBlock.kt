@@ -4,14 +4,40 @@ import collections.DataLineArrayList
 import datacarton.CartonComponent.TraceComponentBuilder
 
 class DataBlock(val dataLines: DataLineArrayList<DataLine?>) : CartonComponent {
-	override fun toString(): String {
-		val builder = StringBuilder()
-		for (line in dataLines) {
-			if (line != null) {
-				builder.append(line.groupToOutput(dataLines.labelWidth)).append("\n")
-			}
+	// the last render, kept between updates, and copied out by appendTo
+	private val buffer = StringBuilder()
+	private var renderedLabelWidth = -1
+
+	/**
+	 * re-renders the lines that have changed since the last render, the block is only rebuilt if a line changed
+	 *
+	 * @return true if the block was rebuilt
+	 */
+	fun refresh(): Boolean {
+		val labelWidth = dataLines.labelWidth
+		var changed = labelWidth != renderedLabelWidth
+		renderedLabelWidth = labelWidth
+		for (i in 0 until dataLines.size) {
+			val line = dataLines[i] ?: continue
+			if (line.refresh(labelWidth)) changed = true
 		}
-		return builder.toString()
+		if (!changed) return false
+		buffer.setLength(0)
+		for (i in 0 until dataLines.size) {
+			val line = dataLines[i] ?: continue
+			line.appendTo(buffer).append('\n')
+		}
+		return true
+	}
+
+	override fun toString(): String {
+		refresh()
+		return buffer.toString()
+	}
+
+	override fun appendTo(builder: StringBuilder): StringBuilder {
+		refresh()
+		return builder.append(buffer)
 	}
 
 	override fun getData(): Collection<DataLine?> {
@@ -1,5 +1,6 @@
 package datacarton
 
+import collections.annotatedtargets.ClassMetadata
 import collections.annotatedtargets.ImportingPackaged
 import collections.annotatedtargets.Packaged
 import datacarton.annotations.Export
@@ -17,7 +18,11 @@ import dev.frozenmilk.util.cell.LateInitCell
 import org.firstinspires.ftc.robotcore.external.Telemetry
 import java.lang.annotation.Inherited
 import java.lang.reflect.AccessibleObject
-import java.util.concurrent.atomic.AtomicBoolean
+import java.util.Collections
+import java.util.IdentityHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
 import java.util.function.Supplier
 
 object DataCarton : Feature {
@@ -90,67 +95,147 @@ object DataCarton : Feature {
 	}
 
 	override fun postUserStopHook(opMode: Wrapper) {
+		// the last update drains everything the sampler captured
+		sampler.stop()
 		if (autoUpdate) {
 			update()
 		}
+		// if the publisher is stuck in a publication it is still using the processors and renderers,
+		// so fresh ones are swapped in for the next OpMode, and the old processors are closed once it finishes with them
+		shutdown()
+		val processors = publicationProcessors
+		publicationProcessors = mutableSetOf()
+		renderers = Renderers.EMPTY
+		publicationWorker.afterPublication {
+			processors.forEach { it.close() }
+		}
+		pendingMessages.clear()
+		pendingMessageCount.set(0)
+		sampler.clear()
 		defaultRenderOrder = RenderOrder.DEFAULT_MAPPING
-		publicationProcessors.clear()
 		packageProcessors.clear()
-		rendererHashMap.clear()
 		settingsMap.clear()
 		configMap.clear()
 	}
 
 	var defaultRenderOrder: RenderOrder = RenderOrder.DEFAULT_MAPPING
-	val publicationProcessors: MutableSet<PublicationProcessor> = mutableSetOf()
+	/**
+	 * replaced with an empty set at the end of each OpMode
+	 */
+	@Volatile
+	var publicationProcessors: MutableSet<PublicationProcessor> = mutableSetOf()
+		private set
 	val packageProcessors: MutableSet<PackageProcessor> = mutableSetOf()
 
-	private val rendererHashMap: HashMap<String, CartonComponentRenderer> = HashMap()
+	/**
+	 * the renderers built by [packageData], never modified once published, [packageData] swaps in a new set instead, so the publisher can use them without locking
+	 *
+	 * @param scheduled the renderers, highest priority first
+	 */
+	private class Renderers(val byGroup: Map<String, CartonComponentRenderer>, val scheduled: List<CartonComponentRenderer>) {
+		companion object {
+			val EMPTY = Renderers(emptyMap(), emptyList())
+		}
+	}
+
+	@Volatile
+	private var renderers = Renderers.EMPTY
+
+	/**
+	 * the maximum number of rate limited groups that are published in a single update, groups that miss out stay due, and are published first in the next update
+	 *
+	 * groups without a publish rate are published every update, and don't count towards this
+	 */
+	@Volatile
+	var maxRateLimitedGroupsPerUpdate = Int.MAX_VALUE
 
 	private var startTime: Long = System.nanoTime()
+
+	/**
+	 * captures [datacarton.annotations.Sample] annotated members at a steady rate, started by [packageData], and stopped at the end of the OpMode
+	 */
+	val sampler = Sampler("DataCarton Sampler")
 	private val settingsMap = HashMap<String, RenderOrder>()
 
-	private val thread = Thread {
-		while (true) {
-			if (requestUpdate.get()) {
-				publicationProcessors.forEach {
-					if (it.ignoreUpdate()) return@forEach
-					it.initPublication()
-					rendererHashMap.forEach { (_, component) ->
-						it.accept(component)
-					}
-					it.updatePublication()
-				}
-				requestUpdate.set(false)
+	private val publicationWorker = PublicationWorker("DataCarton Publisher") {
+		// read once, so the whole publication uses the same renderers, even if they are repackaged part way through
+		val renderers = renderers
+		drainMessages(renderers)
+		schedule(renderers)
+		publicationProcessors.forEach {
+			if (it.ignoreUpdate()) return@forEach
+			it.initPublication()
+			renderers.scheduled.forEach { component ->
+				it.accept(component)
 			}
+			it.updatePublication()
 		}
 	}
 
-	private val requestUpdate = AtomicBoolean(false)
+	/**
+	 * marks which renderers are due this update
+	 */
+	private fun schedule(renderers: Renderers) {
+		val now = System.nanoTime()
+		var budget = maxRateLimitedGroupsPerUpdate
+		for (renderer in renderers.scheduled) {
+			if (renderer.publishPeriod == 0L) {
+				renderer.due = true
+				continue
+			}
+			renderer.due = budget > 0 && now - renderer.lastPublished >= renderer.publishPeriod
+			if (renderer.due) {
+				budget--
+				renderer.lastPublished = now
+			}
+		}
+	}
 
 	/**
-	 * returns if the update request succeeded or not
+	 * the number of publications that have been requested but not yet completed
 	 */
-	fun update(): Boolean {
-		// if the thread wasn't started yet, start it
-		if (!thread.isAlive) thread.start()
+	val publicationQueueDepth: Int
+		get() = publicationWorker.queueDepth
 
-		// an update is currently underway
-		if (requestUpdate.get()) return false
+	/**
+	 * the number of calls to [update] that were skipped as a publication was already underway
+	 */
+	val skippedUpdates: Long
+		get() = publicationWorker.skippedUpdates
+
+	/**
+	 * the last exception thrown while publishing, the publication thread keeps running after an exception
+	 */
+	val lastPublicationException: Throwable?
+		get() = publicationWorker.lastException
 
-		// else, request one
-		requestUpdate.set(true)
-		return true
+	/**
+	 * returns if the update request succeeded or not
+	 */
+	fun update(): Boolean {
+		// starts the worker if needed, and wakes it
+		// returns false if an update is currently underway
+		return publicationWorker.request()
 	}
 
 	/**
 	 * blocking until an update is completed, should probably not be used except for testing
 	 */
 	fun awaitUpdate() {
-		var firstAttempt = true
-		while (firstAttempt or !update()) {
-			firstAttempt = false
-		}
+		publicationWorker.awaitIdle()
+		update()
+		publicationWorker.awaitIdle()
+	}
+
+	/**
+	 * stops the publication thread, after running any pending update
+	 *
+	 * automatically called at the end of an OpMode, the thread will be restarted by the next call to [update]
+	 *
+	 * @return false if the thread was still publishing when the wait ran out
+	 */
+	fun shutdown(): Boolean {
+		return publicationWorker.shutdown()
 	}
 
 	/**
@@ -166,7 +251,10 @@ object DataCarton : Feature {
 		}
 
 		val builderMap: MutableMap<String, CartonComponentRenderer.Builder> = HashMap()
-		val packages: List<Packaged> = explorePackageTree({ root }, root.javaClass, root.javaClass.simpleName, false)
+		skippedPackages = 0
+		val ancestors = Collections.newSetFromMap(IdentityHashMap<Any, Boolean>())
+		ancestors.add(root)
+		val packages: List<Packaged> = explorePackageTree({ root }, root.javaClass, root.javaClass.simpleName, false, 0, ancestors)
 
 		packageProcessors.forEach { processor ->
 			run {
@@ -195,47 +283,97 @@ object DataCarton : Feature {
 			builderMap.putIfAbsent(it.key, CartonComponentRenderer.Builder(it.value))
 		}
 
-		// builds the renders
+		// builds the renders, into a copy, as the publisher may be using the current ones
+		val byGroup = HashMap(renderers.byGroup)
+		val now = System.nanoTime()
 		for ((key, value) in builderMap) {
-			rendererHashMap[key] = value.build(key)
+			val renderer = value.build(key)
+			val config = configMap[key]
+			if (config != null) {
+				renderer.publishPeriod = config.publishPeriod
+				renderer.priority = config.priority
+			}
+			// due on the first update
+			renderer.lastPublished = now - renderer.publishPeriod
+			byGroup[key] = renderer
 		}
+
+		renderers = Renderers(byGroup, byGroup.values.sortedByDescending { it.priority })
+
+		sampler.start()
 	}
 
+	/**
+	 * the deepest level of nested @Pack members that [packageData] will explore, members past this are skipped
+	 */
+	var maxPackageDepth = 32
+
+	/**
+	 * the number of @Pack members skipped by the last [packageData], as they were past [maxPackageDepth], or led back to an instance they were packaged from
+	 */
+	var skippedPackages = 0
+		private set
+
+	/**
+	 * if [group] has been configured to render nothing, in which case there is no point exploring it
+	 */
+	private fun isHidden(group: String) = configMap[group]?.renders?.isEmpty() == true
+
 	/**
 	 * recursively finds the fields which should be packaged in the opmode runtime tree
 	 *
+	 * an instance packed under several members is packaged under each of them, but never under itself, which stops reference cycles,
+	 * and the members of hidden groups are not explored until the next [packageData] after they are configured to render something
+	 *
 	 * @param root root object
 	 * @param targetClass      class of the root object
+	 * @param ancestors the instances on the path from the root to [root], including it
 	 */
-	private fun explorePackageTree(root: Supplier<*>, targetClass: Class<*>, parentGroup: String, parentBundled: Boolean): List<Packaged> {
+	private fun explorePackageTree(root: Supplier<*>, targetClass: Class<*>, parentGroup: String, parentBundled: Boolean, depth: Int, ancestors: MutableSet<Any>): List<Packaged> {
 		val packages = analyseAccessibleObjects(
-				(listOf(*targetClass.declaredMethods, *targetClass.declaredFields) as List<AccessibleObject>),
+				ClassMetadata.of(targetClass).packMembers,
 				root, parentGroup, parentBundled
 		)
 		val recursivePackages = ArrayList<Packaged>()
 		val parent = targetClass.superclass
 		if (parent != null && parent != Any::class.java) {
-			recursivePackages.addAll(explorePackageTree(root, parent, parentGroup, parentBundled))
+			recursivePackages.addAll(explorePackageTree(root, parent, parentGroup, parentBundled, depth, ancestors))
 		}
-		for (packaged in packages) {
-			if (packaged.childInstance.get() != null) {
-				if (packaged is ImportingPackaged) {
-					recursivePackages.addAll(
-							analyseAccessibleObjects(
-									packaged.packMethods + packaged.packFields,
-									root, parentGroup, packaged.bundle
-							)
-					)
-				}
+		val iterator = packages.iterator()
+		while (iterator.hasNext()) {
+			val packaged = iterator.next()
+			// only read once, the getter may be doing work
+			val childInstance = packaged.childInstance.get() ?: continue
+			val group = if (packaged.bundle) parentGroup else packaged.group
+			if (isHidden(group)) {
+				iterator.remove()
+				continue
+			}
+			if (depth >= maxPackageDepth || childInstance in ancestors) {
+				skippedPackages++
+				iterator.remove()
+				continue
+			}
+			if (packaged is ImportingPackaged) {
 				recursivePackages.addAll(
-						explorePackageTree(
-								packaged.childInstance,
-								packaged.childInstance.get()!!.javaClass,
-								if (packaged.bundle) parentGroup else packaged.group,
-								packaged.bundle
+						analyseAccessibleObjects(
+								packaged.packMethods + packaged.packFields,
+								root, parentGroup, packaged.bundle
 						)
 				)
 			}
+			ancestors.add(childInstance)
+			recursivePackages.addAll(
+					explorePackageTree(
+							packaged.childInstance,
+							childInstance.javaClass,
+							group,
+							packaged.bundle,
+							depth + 1,
+							ancestors
+					)
+			)
+			ancestors.remove(childInstance)
 		}
 		packages.addAll(recursivePackages)
 		return packages
@@ -269,6 +407,29 @@ object DataCarton : Feature {
 	}
 	class DataConfiguration {
 		internal val renders = arrayListOf<Render<*>>()
+		internal var publishPeriod = 0L
+		internal var priority = 0
+
+		/**
+		 * limits how often this group is read and published, by default groups are published every update
+		 *
+		 * while the group is not due, telemetry outputs show its previous output, and data logs skip it
+		 */
+		fun withPublishRate(hz: Double): DataConfiguration {
+			require(hz > 0.0) { "publish rate must be greater than 0, was $hz" }
+			publishPeriod = (1E9 / hz).toLong()
+			return this
+		}
+
+		/**
+		 * groups with a higher priority are published before groups with a lower one, defaults to 0
+		 *
+		 * @see DataCarton.maxRateLimitedGroupsPerUpdate
+		 */
+		fun withPriority(priority: Int): DataConfiguration {
+			this.priority = priority
+			return this
+		}
 		fun <T> with(render: Render<T>): DataConfiguration {
 			renders.add(render)
 			return this
@@ -285,9 +446,46 @@ object DataCarton : Feature {
 		}
 	}
 
+	/**
+	 * the maximum number of published messages that can be waiting for the next update, messages published past this are dropped
+	 */
+	const val MAX_PENDING_MESSAGES = 1024
+
+	private class PendingMessage(val group: String, val dataLine: DataLine)
+
+	// messages are handed to the publisher thread, which is the only thread that touches the renderers
+	private val pendingMessages = ConcurrentLinkedQueue<PendingMessage>()
+	private val pendingMessageCount = AtomicInteger()
+	private val droppedMessageCount = AtomicLong()
+
+	/**
+	 * the number of messages dropped as too many were waiting for the next update
+	 */
+	val droppedMessages: Long
+		get() = droppedMessageCount.get()
+
+	private fun drainMessages(renderers: Renderers) {
+		while (true) {
+			val message = pendingMessages.poll() ?: return
+			pendingMessageCount.decrementAndGet()
+			val renderer = renderers.byGroup[message.group] ?: continue
+			if (!renderer.has(MessageBoard::class.java)) continue
+			renderer.add(MessageBoard::class.java, message.dataLine)
+		}
+	}
+
+	/**
+	 * publishes a message to the message board of [group], safe to call from any thread
+	 *
+	 * the message is timestamped when this is called, but only shows up on the board in the next update
+	 */
 	fun publishMessage(group: String, label: String, contents: Any) {
-		val renderer = rendererHashMap[group] ?: return
-		renderer.add(MessageBoard::class.java, TimedDataLine(startTime, label, contents.toString()))
+		if (pendingMessageCount.incrementAndGet() > MAX_PENDING_MESSAGES) {
+			pendingMessageCount.decrementAndGet()
+			droppedMessageCount.incrementAndGet()
+			return
+		}
+		pendingMessages.offer(PendingMessage(group, TimedDataLine(startTime, label, contents.toString())))
 	}
 
 	fun publishMessage(group: String, contents: Any) {
@@ -11,19 +11,48 @@ open class DataLine internal constructor(
 		 * contents of the message
 		 */
 		val contents: Supplier<String>,
-
+		/**
+		 * the raw value behind [contents], used by outputs that store typed values
+		 */
+		val value: Supplier<*> = contents,
 		) {
 	val labelWidth: Int
 		get() = label.length
 
-	fun groupToOutput(labelWidth: Int): String {
-		val builder = StringBuilder(label)
-		for (len in label.length until labelWidth) {
-			builder.append(" ")
+	private var renderedLabelWidth = -1
+	private var paddedLabel = ""
+	private var renderedContents: String? = null
+
+	/**
+	 * reads [contents], and re-renders this line if they, or the [labelWidth], have changed since the last render
+	 *
+	 * @return true if the line changed, and needs to be appended again
+	 */
+	fun refresh(labelWidth: Int): Boolean {
+		val contents = contents.get()
+		if (labelWidth != renderedLabelWidth) {
+			val builder = StringBuilder(labelWidth + 3).append(label)
+			for (len in label.length until labelWidth) {
+				builder.append(' ')
+			}
+			paddedLabel = builder.append(" | ").toString()
+			renderedLabelWidth = labelWidth
 		}
-		builder.append(" | ")
-		builder.append(contents.get())
-		return builder.toString()
+		else if (contents == renderedContents) return false
+		renderedContents = contents
+		return true
+	}
+
+	/**
+	 * appends the output of the last [refresh] to [builder]
+	 */
+	fun appendTo(builder: StringBuilder): StringBuilder {
+		return builder.append(paddedLabel).append(renderedContents ?: "")
+	}
+
+	fun groupToOutput(labelWidth: Int): String {
+		refresh(labelWidth)
+		return appendTo(StringBuilder()).toString()
 	}
 
 	override fun toString(): String {
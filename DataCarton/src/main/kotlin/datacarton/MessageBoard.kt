@@ -4,16 +4,35 @@ import collections.LimitedQueue
 import datacarton.CartonComponent.TraceComponentBuilder
 
 open class MessageBoard(protected val dataLineQueue: LimitedQueue<DataLine>) : CartonComponent {
+	// prebuilt output for each line in the queue, oldest first, lines are rendered once when they are added
+	private val segments = LimitedQueue<String>(dataLineQueue.capacity)
+	protected val segmentCount: Int
+		get() = segments.size
+	protected val renderBuffer = StringBuilder()
 	private var cachedBuild = ""
+	private var dirty = false
+
+	/**
+	 * the prebuilt output of the [index]th oldest line
+	 */
+	protected fun segment(index: Int): String = segments[index]
+
+	/**
+	 * joins the prebuilt lines, only run when the board is read after it was changed
+	 */
 	protected open fun rebuild(): String {
-		val builder = StringBuilder()
-		for (line in dataLineQueue) {
-			builder.append(line).append("\n")
+		renderBuffer.setLength(0)
+		for (i in 0 until segmentCount) {
+			renderBuffer.append(segment(i))
 		}
-		return builder.toString()
+		return renderBuffer.toString()
 	}
 
 	override fun toString(): String {
+		if (dirty) {
+			cachedBuild = rebuild()
+			dirty = false
+		}
 		return cachedBuild
 	}
 
@@ -22,8 +41,10 @@ open class MessageBoard(protected val dataLineQueue: LimitedQueue<DataLine>) : C
 	}
 
 	override fun add(dataLine: DataLine?) {
-		dataLineQueue.offer(dataLine)
-		cachedBuild = rebuild()
+		if (!dataLineQueue.offer(dataLine)) return
+		// evicts the oldest alongside the queue
+		segments.offer("$dataLine\n")
+		dirty = true
 	}
 
 	class Builder : TraceComponentBuilder {
@@ -49,13 +70,11 @@ open class MessageBoard(protected val dataLineQueue: LimitedQueue<DataLine>) : C
 
 	class Reversed(dataLineQueue: LimitedQueue<DataLine>) : MessageBoard(dataLineQueue) {
 		override fun rebuild(): String {
-			val builder = StringBuilder()
-			val it: Iterator<DataLine?> = dataLineQueue.reverseIterator()
-			while (it.hasNext()) {
-				val line = it.next()
-				builder.append(line).append("\n")
+			renderBuffer.setLength(0)
+			for (i in segmentCount - 1 downTo 0) {
+				renderBuffer.append(segment(i))
 			}
-			return builder.toString()
+			return renderBuffer.toString()
 		}
 	}
 }
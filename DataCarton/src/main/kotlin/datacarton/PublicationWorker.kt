@@ -0,0 +1,192 @@
+package datacarton
+
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.LockSupport
+
+/**
+ * runs [publish] on a background thread, the thread is parked while there is no work to do, and is woken by [request]
+ *
+ * at most one publication is pending at a time, requests made while one is pending are counted as skipped
+ */
+class PublicationWorker(private val name: String, private val publish: Runnable) {
+	private val running = AtomicBoolean(false)
+	private val requested = AtomicBoolean(false)
+	private val idleLock = Object()
+	// orders starting the worker against the thread deciding to exit
+	private val lifecycleLock = Object()
+
+	@Volatile
+	private var thread: Thread? = null
+
+	// run on the worker thread between publications
+	private val afterPublicationTasks = ConcurrentLinkedQueue<Runnable>()
+
+	private val requestedCount = AtomicLong()
+	private val skippedCount = AtomicLong()
+	private val completedCount = AtomicLong()
+
+	/**
+	 * the last exception thrown by [publish], the worker keeps running after an exception
+	 */
+	@Volatile
+	var lastException: Throwable? = null
+		private set
+
+	/**
+	 * the number of publications that have been requested, but not yet completed
+	 */
+	val queueDepth: Int
+		get() = if (requested.get()) 1 else 0
+
+	/**
+	 * the number of calls to [request] that were dropped as a publication was already pending
+	 */
+	val skippedUpdates: Long
+		get() = skippedCount.get()
+
+	/**
+	 * the number of calls to [request] that were accepted
+	 */
+	val requestedUpdates: Long
+		get() = requestedCount.get()
+
+	/**
+	 * the number of publications that have finished running
+	 */
+	val completedUpdates: Long
+		get() = completedCount.get()
+
+	val isAlive: Boolean
+		get() = thread?.isAlive == true
+
+	/**
+	 * starts the worker thread if it is not already running
+	 *
+	 * if a previous thread outlived [shutdown], it is kept running instead, so there is never more than one publisher
+	 */
+	fun start() {
+		if (running.get()) return
+		synchronized(lifecycleLock) {
+			if (!running.compareAndSet(false, true)) return
+			val alive = thread
+			if (alive != null) {
+				LockSupport.unpark(alive)
+				return
+			}
+			val thread = Thread(this::run, name)
+			thread.isDaemon = true
+			this.thread = thread
+			thread.start()
+		}
+	}
+
+	/**
+	 * requests a publication, starting the worker if needed
+	 *
+	 * @return false if a publication was already pending, in which case this request is skipped
+	 */
+	fun request(): Boolean {
+		start()
+		if (!requested.compareAndSet(false, true)) {
+			skippedCount.incrementAndGet()
+			return false
+		}
+		requestedCount.incrementAndGet()
+		LockSupport.unpark(thread)
+		return true
+	}
+
+	/**
+	 * blocks until there is no pending publication
+	 */
+	fun awaitIdle() {
+		synchronized(idleLock) {
+			while (requested.get() && isAlive) {
+				idleLock.wait(10)
+			}
+		}
+	}
+
+	/**
+	 * stops the worker, a pending publication is run before the thread exits
+	 *
+	 * blocks for up to [timeoutMillis] while the thread finishes
+	 *
+	 * @return false if the thread is still running after [timeoutMillis], in which case [publish] may still be running, and anything it uses should be left alone
+	 */
+	@JvmOverloads
+	fun shutdown(timeoutMillis: Long = 500): Boolean {
+		running.set(false)
+		val thread = this.thread ?: return true
+		LockSupport.unpark(thread)
+		if (thread == Thread.currentThread()) return false
+		thread.join(timeoutMillis)
+		return !thread.isAlive
+	}
+
+	/**
+	 * runs [task] once the current publication has finished, or straight away if the thread isn't running
+	 *
+	 * used to clean up after a [shutdown] that timed out, without touching anything the stuck publication is still using
+	 */
+	fun afterPublication(task: Runnable) {
+		synchronized(lifecycleLock) {
+			if (thread != null) {
+				afterPublicationTasks.offer(task)
+				LockSupport.unpark(thread)
+				return
+			}
+		}
+		task.run()
+	}
+
+	private fun runAfterPublication() {
+		while (true) {
+			val task = afterPublicationTasks.poll() ?: return
+			try {
+				task.run()
+			}
+			catch (e: Throwable) {
+				lastException = e
+			}
+		}
+	}
+
+	private fun run() {
+		while (true) {
+			runAfterPublication()
+			if (!requested.get()) {
+				// pending work is drained before shutting down
+				if (!running.get()) {
+					synchronized(lifecycleLock) {
+						// start may have revived this thread in the meantime
+						if (!running.get()) {
+							// anything handed over while the thread was deciding to exit
+							runAfterPublication()
+							thread = null
+							return
+						}
+					}
+				}
+				LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100))
+				continue
+			}
+			try {
+				publish.run()
+			}
+			catch (e: Throwable) {
+				lastException = e
+			}
+			finally {
+				completedCount.incrementAndGet()
+				requested.set(false)
+				synchronized(idleLock) {
+					idleLock.notifyAll()
+				}
+			}
+		}
+	}
+}
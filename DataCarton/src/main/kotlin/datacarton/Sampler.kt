@@ -0,0 +1,163 @@
+package datacarton
+
+import collections.TimestampedRingBuffer
+import datacarton.annotations.Sample
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.locks.LockSupport
+import java.util.function.DoubleSupplier
+
+/**
+ * reads [Sample] annotated members on its own thread, at their own rates, rather than when [DataCarton.update] runs
+ *
+ * each member gets a [Channel], which holds the samples, timestamped with [System.nanoTime], until an output drains them
+ *
+ * members are read while user code may be changing them, so samples are only as consistent as reading the values from another thread allows
+ */
+class Sampler internal constructor(private val name: String) {
+	class Channel internal constructor(val group: String, val label: String, rate: Double, val capacity: Int, private val source: DoubleSupplier) {
+		init {
+			require(rate > 0.0) { "sample rate must be greater than 0, was $rate" }
+		}
+
+		/**
+		 * nanoseconds between samples
+		 */
+		val period = (1E9 / rate).toLong()
+
+		private val buffer = TimestampedRingBuffer(capacity)
+		internal var nextSample = 0L
+
+		/**
+		 * samples that were overwritten before they were drained
+		 */
+		@Volatile
+		var overwrittenSamples = 0L
+			private set
+
+		/**
+		 * samples that were skipped as the sampler fell behind
+		 */
+		@Volatile
+		var missedSamples = 0L
+			private set
+
+		/**
+		 * the last exception thrown while reading the member, the sample is recorded as NaN
+		 */
+		@Volatile
+		var lastException: Exception? = null
+			private set
+
+		internal fun sample(now: Long) {
+			val value = try {
+				source.asDouble
+			}
+			catch (e: Exception) {
+				lastException = e
+				Double.NaN
+			}
+			synchronized(buffer) {
+				if (buffer.isFull()) overwrittenSamples++
+				buffer.offer(now, value)
+			}
+			nextSample += period
+			if (now - nextSample >= 0) {
+				// fell more than a period behind, start again from now rather than sampling in a burst
+				missedSamples += (now - nextSample) / period + 1
+				nextSample = now + period
+			}
+		}
+
+		/**
+		 * moves the buffered samples, oldest first, into [timestamps] and [values], which should be at least [capacity] long
+		 *
+		 * @return the number of samples moved
+		 */
+		fun drainTo(timestamps: LongArray, values: DoubleArray): Int {
+			synchronized(buffer) {
+				val count = buffer.copyTimestampsInto(timestamps).coerceAtMost(buffer.copyInto(values))
+				if (count == buffer.size) buffer.clear()
+				else repeat(count) { buffer.poll() }
+				return count
+			}
+		}
+	}
+
+	private val channelList = CopyOnWriteArrayList<Channel>()
+
+	/**
+	 * the registered channels, in the order they were registered
+	 */
+	val channels: List<Channel>
+		get() = channelList
+
+	/**
+	 * the [System.nanoTime] the sampler was last started at
+	 */
+	@Volatile
+	var startTime = 0L
+		private set
+
+	@Volatile
+	private var thread: Thread? = null
+
+	val isRunning: Boolean
+		get() = thread != null
+
+	/**
+	 * registers a member to be sampled, does nothing if one is already registered with the same [group] and [label]
+	 */
+	fun register(group: String, label: String, sample: Sample, source: DoubleSupplier): Channel {
+		channelList.firstOrNull { it.group == group && it.label == label }?.let { return it }
+		val channel = Channel(group, label, sample.rate, sample.capacity, source)
+		channel.nextSample = System.nanoTime()
+		channelList.add(channel)
+		return channel
+	}
+
+	/**
+	 * starts sampling, if there are channels to sample and the sampler is not already running
+	 */
+	fun start() {
+		if (thread != null || channelList.isEmpty()) return
+		startTime = System.nanoTime()
+		channelList.forEach { it.nextSample = startTime }
+		val thread = Thread(this::run, name)
+		thread.isDaemon = true
+		thread.priority = Thread.MAX_PRIORITY
+		this.thread = thread
+		thread.start()
+	}
+
+	/**
+	 * stops sampling, samples that have already been taken stay buffered
+	 */
+	fun stop() {
+		val thread = thread ?: return
+		this.thread = null
+		LockSupport.unpark(thread)
+		thread.join(500)
+	}
+
+	/**
+	 * stops sampling, and removes all channels
+	 */
+	fun clear() {
+		stop()
+		channelList.clear()
+	}
+
+	private fun run() {
+		val self = Thread.currentThread()
+		while (thread === self) {
+			var now = System.nanoTime()
+			var next = now + 1_000_000_000L
+			for (channel in channelList) {
+				if (now - channel.nextSample >= 0) channel.sample(now)
+				if (channel.nextSample - next < 0) next = channel.nextSample
+			}
+			now = System.nanoTime()
+			if (next - now > 0) LockSupport.parkNanos(next - now)
+		}
+	}
+}
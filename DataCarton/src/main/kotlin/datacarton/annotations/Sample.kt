@@ -0,0 +1,10 @@
+package datacarton.annotations
+
+/**
+ * also captures a [Data] member at a steady [rate] in hz, independent of the loop, see [datacarton.Sampler]
+ *
+ * the member is read as a double, [capacity] samples are buffered between updates
+ */
+@Retention(AnnotationRetention.RUNTIME)
+@Target(AnnotationTarget.FIELD, AnnotationTarget.FUNCTION, AnnotationTarget.PROPERTY_GETTER)
+annotation class Sample(val rate: Double = 100.0, val capacity: Int = 1024)
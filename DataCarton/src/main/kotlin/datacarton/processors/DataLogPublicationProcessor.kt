@@ -1,33 +1,41 @@
 package datacarton.processors
 
-import log.CSVLog
+import log.DataLog
+import log.DataLogFormat
 import datacarton.CartonComponentRenderer
 import datacarton.DataBlock
 
-class DataLogPublicationProcessor(val directory: String, val shelfLife: Int = 7, val recordTime: Boolean = true) : PublicationProcessor {
-	private val logMap = mutableMapOf<String, CSVLog>()
+/**
+ * @param format the file format the logs are written in, [DataLogFormat.COLUMNAR] produces much smaller files than csv for long runs
+ */
+class DataLogPublicationProcessor(val directory: String, val shelfLife: Int = 7, val recordTime: Boolean = true, val format: DataLogFormat = DataLogFormat.CSV) : PublicationProcessor {
+	private val logMap = mutableMapOf<String, DataLog>()
+	// only logs that got data this update get a new row, so rate limited groups are logged at their own rate
+	private val updatedLogs = ArrayList<DataLog>()
 	override fun initPublication() {
+		updatedLogs.clear()
 	}
 
 	override fun updatePublication() {
-		logMap.forEach { (_, log) -> log.update() }
+		updatedLogs.forEach { it.update() }
 	}
 
 	override fun ignoreUpdate(): Boolean = false
 
 	override fun accept(p0: CartonComponentRenderer) {
+		if (!p0.due) return
 		val dataMap = p0.cartonComponents
 				.filterIsInstance<DataBlock>()
 				.flatMap { it.dataLines }
 				.mapNotNull {
 					val label = it?.label ?: return@mapNotNull null
-					val contents = it.contents.get()
+					val contents = it.value.get()
 					return@mapNotNull label to contents
 				}
 		val headings = dataMap.map { it.first }.toTypedArray()
 
 		if (!logMap.contains(p0.title)) {
-			logMap[p0.title] = CSVLog("${p0.title}_data", listOf(directory), shelfLife, recordTime)
+			logMap[p0.title] = format.open("${p0.title}_data", listOf(directory), shelfLife, recordTime)
 					.setHeadings(*headings)
 		}
 
@@ -36,5 +44,12 @@ class DataLogPublicationProcessor(val directory: String, val shelfLife: Int = 7,
 		dataMap.forEach {
 			log.logData(it.first, it.second)
 		}
+		updatedLogs.add(log)
 	}
-}
\ No newline at end of file
+
+	override fun close() {
+		updatedLogs.clear()
+		logMap.forEach { (_, log) -> log.close() }
+		logMap.clear()
+	}
+}
@@ -1,57 +1,54 @@
 package datacarton.processors
 
 import collections.annotatedtargets.AnnotatedData
+import collections.annotatedtargets.ClassMetadata
 import collections.annotatedtargets.ImportingPackaged
 import datacarton.DataBlock
+import datacarton.DataCarton
 import datacarton.DataLine
 import datacarton.annotations.Data
-import datacarton.annotations.Export
+import datacarton.annotations.Sample
 import java.util.function.Supplier
 import java.util.stream.Collectors
 import java.util.stream.Stream
 
 /**
- * processes @Data annotations
+ * processes @Data annotations, and registers @Sample annotated members with [DataCarton.sampler]
  */
 object DataPackageProcessor : PackageProcessor {
 	override fun process(instance: Supplier<*>,
 						 group: String,
 						 importer: ImportingPackaged?): Stream<PackageProcessor.ProcessedOutput> {
 		val outputs = ArrayList<PackageProcessor.ProcessedOutput>()
-		var searchTargetClass: Class<*>? = instance.get()::class.java
+		var metadata: ClassMetadata? = ClassMetadata.of(instance.get()::class.java)
 
-		while (searchTargetClass != null && searchTargetClass != Any::class.java) {
-			outputs += listOf(*searchTargetClass.declaredMethods, *searchTargetClass.declaredFields).stream()
+		while (metadata != null) {
+			val searchMetadata = metadata
+			val candidates = if (importer == null) searchMetadata.dataMembers else searchMetadata.members
+			outputs += candidates.stream()
 					.filter { it.isAnnotationPresent(Data::class.java) || importer?.dataFields?.contains(it) == true || importer?.dataMethods?.contains(it) == true}
 					.filter {
 						if (importer == null) return@filter true
 
-						var bundled = importer.includeDefaults
-						bundled = bundled && it.isAnnotationPresent(Export::class.java)
-						if (bundled) {
-							val exporter = it.getAnnotation(Export::class.java)!!
+						val exporter = if (importer.includeDefaults) searchMetadata.export(it) else null
+						if (exporter != null) {
 							return@filter exporter.bundle
 						}
 
 						return@filter (it in importer.dataFields || it in importer.dataMethods)
 					}
-					.peek { it.isAccessible = true }
 					.map {
-						var bundled = importer?.includeDefaults ?: false
-						bundled = bundled && it.isAnnotationPresent(Export::class.java)
-						if (bundled) {
-							val exporter = it.getAnnotation(Export::class.java)!!
-							bundled = exporter.bundle
-						}
-
+						val bundled = importer?.includeDefaults == true && searchMetadata.export(it)?.bundle == true
 						AnnotatedData(instance, it, group, bundled)
 					}
 					.map {
-						PackageProcessor.ProcessedOutput(it.group, DataBlock::class.java, DataLine(it.label) { it.childInstance.get().toString() })
+						val sample = it.accessibleObject.getAnnotation(Sample::class.java)
+						if (sample != null) DataCarton.sampler.register(it.group, it.label, sample, it.doubleContents)
+						PackageProcessor.ProcessedOutput(it.group, DataBlock::class.java, DataLine(it.label, it.stringContents, it.childInstance))
 					}
 					.collect(Collectors.toList())
 
-			searchTargetClass = searchTargetClass.superclass
+			metadata = searchMetadata.superclass
 		}
 		return outputs.stream()
 	}
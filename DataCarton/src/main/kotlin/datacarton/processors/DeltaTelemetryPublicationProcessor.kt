@@ -0,0 +1,108 @@
+package datacarton.processors
+
+import com.qualcomm.robotcore.util.ElapsedTime
+import datacarton.CartonComponentRenderer
+import dev.frozenmilk.util.cell.MirroredCell
+import org.firstinspires.ftc.robotcore.external.Telemetry
+import org.firstinspires.ftc.robotcore.internal.opmode.TelemetryImpl
+import java.lang.reflect.Field
+
+/**
+ * a telemetry output that gives each group its own telemetry line, and only rewrites the lines of groups whose output changed
+ *
+ * telemetry is only transmitted when at least one line changed, [bytesPerSecond] reports the amount of text being sent
+ */
+class DeltaTelemetryPublicationProcessor(private val telemetry: Telemetry) : PublicationProcessor {
+	private class GroupLine(val line: Telemetry.Line) {
+		var previous = ""
+		// the publication this group was last seen in
+		var publication = 0L
+	}
+
+	private val lineCaption: Field = Telemetry.Line::class.java.getDeclaredField("lineCaption")
+	private val lines = LinkedHashMap<String, GroupLine>()
+	private val buffer = StringBuilder()
+	private var changed = false
+	private var publication = 0L
+
+	init {
+		lineCaption.isAccessible = true
+		telemetry.isAutoClear = false
+		telemetry.clearAll()
+		telemetry.setDisplayFormat(Telemetry.DisplayFormat.MONOSPACE)
+		telemetry.captionValueSeparator = ""
+		telemetry.itemSeparator = ""
+	}
+
+	private val telemetryTimer = MirroredCell<ElapsedTime>(telemetry as TelemetryImpl, "transmissionTimer").get()
+
+	/**
+	 * the number of updates where at least one line changed, and telemetry was transmitted
+	 */
+	var transmissions = 0L
+		private set
+
+	/**
+	 * the number of updates where nothing changed, and transmission was skipped
+	 */
+	var skippedTransmissions = 0L
+		private set
+
+	private var windowStart = System.nanoTime()
+	private var windowBytes = 0L
+
+	/**
+	 * the approximate number of bytes of text sent to the driver station over the last second
+	 */
+	@Volatile
+	var bytesPerSecond = 0.0
+		private set
+
+	override fun initPublication() {
+		changed = false
+		publication++
+	}
+
+	override fun accept(p0: CartonComponentRenderer) {
+		buffer.setLength(0)
+		p0.appendTo(buffer).append("\n")
+		val groupLine = lines.getOrPut(p0.title) { GroupLine(telemetry.addLine()) }
+		groupLine.publication = publication
+		if (groupLine.previous.contentEquals(buffer)) return
+		groupLine.previous = buffer.toString()
+		lineCaption.set(groupLine.line, groupLine.previous)
+		changed = true
+	}
+
+	override fun updatePublication() {
+		// groups that are no longer published lose their lines
+		val iterator = lines.values.iterator()
+		while (iterator.hasNext()) {
+			val groupLine = iterator.next()
+			if (groupLine.publication == publication) continue
+			telemetry.removeLine(groupLine.line)
+			iterator.remove()
+			changed = true
+		}
+		if (changed) {
+			// every line gets sent in a transmission, not just the changed ones
+			lines.forEach { (_, groupLine) -> windowBytes += groupLine.previous.length }
+			telemetry.update()
+			transmissions++
+		}
+		else {
+			skippedTransmissions++
+		}
+		val now = System.nanoTime()
+		val elapsed = now - windowStart
+		if (elapsed >= 1_000_000_000L) {
+			bytesPerSecond = windowBytes * 1E9 / elapsed
+			windowBytes = 0
+			windowStart = now
+		}
+	}
+
+	override fun ignoreUpdate(): Boolean {
+		return !(telemetryTimer.milliseconds() > telemetry.msTransmissionInterval)
+	}
+}
@@ -0,0 +1,215 @@
+package datacarton.processors
+
+import datacarton.CartonComponentRenderer
+import datacarton.DataBlock
+import log.DataLog
+import log.DataLogFormat
+import log.Log
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.function.BooleanSupplier
+
+/**
+ * keeps the last [seconds] of data from every group in memory, and only writes it to disk when triggered, by [trigger], a condition added with [triggerWhen], or an uncaught exception if [triggerOnUncaughtException] is used
+ *
+ * each group gets a log, which each recording is appended to, rows hold the reason for the recording, and the time relative to when it was triggered, in seconds
+ *
+ * the logs are written synchronously, a recording dumps a whole ring at once, which would overflow an async writer's buffer, and recordings aren't written from the loop anyway
+ *
+ * @param rowsPerGroup the number of updates held for each group, the memory for which is allocated up front, the oldest are overwritten before [seconds] if updates are frequent enough
+ */
+class FlightRecorderPublicationProcessor @JvmOverloads constructor(val directory: String, val seconds: Double = 10.0, val rowsPerGroup: Int = 2048, val shelfLife: Int = 7, val format: DataLogFormat = DataLogFormat.CSV) : PublicationProcessor {
+	init {
+		require(seconds > 0.0) { "seconds must be greater than 0, was $seconds" }
+		require(rowsPerGroup > 0) { "rowsPerGroup must be greater than 0, was $rowsPerGroup" }
+	}
+
+	private class GroupRing(val headings: Array<String>, capacity: Int) {
+		val timestamps = LongArray(capacity)
+		val rows = Array(capacity) { arrayOfNulls<Any?>(headings.size) }
+		var start = 0
+		var size = 0
+
+		/**
+		 * the row to record into, overwriting the oldest if the ring is full
+		 */
+		fun next(timestamp: Long): Array<Any?> {
+			val slot = (start + size) % rows.size
+			if (size == rows.size) start = (start + 1) % rows.size
+			else size++
+			timestamps[slot] = timestamp
+			return rows[slot]
+		}
+
+		fun clear() {
+			start = 0
+			size = 0
+			rows.forEach { it.fill(null) }
+		}
+	}
+
+	private class Trigger(val reason: String, val condition: BooleanSupplier) {
+		var wasTrue = false
+	}
+
+	private val window = (seconds * 1E9).toLong()
+	private val rings = LinkedHashMap<String, GroupRing>()
+	private val logMap = mutableMapOf<String, DataLog>()
+	private val triggers = CopyOnWriteArrayList<Trigger>()
+
+	@Volatile
+	private var pendingReason: String? = null
+
+	/**
+	 * the number of recordings written
+	 */
+	@Volatile
+	var recordings = 0
+		private set
+
+	/**
+	 * the last exception thrown while writing a recording
+	 */
+	@Volatile
+	var lastException: Exception? = null
+		private set
+
+	/**
+	 * the number of recorded rows that didn't make it to disk, should stay 0, as the logs are written synchronously
+	 */
+	val droppedRows: Long
+		@Synchronized
+		get() = logMap.values.sumOf { (it as? Log)?.droppedLines ?: 0L }
+
+	/**
+	 * writes the buffered data to disk at the end of the next update, safe to call from any thread
+	 */
+	fun trigger(reason: String) {
+		pendingReason = reason
+	}
+
+	/**
+	 * checks [condition] each update, and triggers a recording each time it becomes true, for instance when a motor is drawing too much current
+	 */
+	fun triggerWhen(reason: String, condition: BooleanSupplier): FlightRecorderPublicationProcessor {
+		triggers.add(Trigger(reason, condition))
+		return this
+	}
+
+	private var previousHandler: Thread.UncaughtExceptionHandler? = null
+	private var handler: Thread.UncaughtExceptionHandler? = null
+
+	/**
+	 * writes a recording straight away if any thread dies to an uncaught exception, before passing the exception on to the previous handler
+	 *
+	 * the previous handler is put back by [close]
+	 */
+	fun triggerOnUncaughtException(): FlightRecorderPublicationProcessor {
+		if (handler != null) return this
+		val previous = Thread.getDefaultUncaughtExceptionHandler()
+		val handler = Thread.UncaughtExceptionHandler { thread, throwable ->
+			// the app is probably about to go down, so the logs are closed to get everything onto disk
+			close("${throwable.javaClass.simpleName} on ${thread.name}")
+			previous?.uncaughtException(thread, throwable)
+		}
+		previousHandler = previous
+		this.handler = handler
+		Thread.setDefaultUncaughtExceptionHandler(handler)
+		return this
+	}
+
+	override fun initPublication() {
+	}
+
+	@Synchronized
+	override fun accept(p0: CartonComponentRenderer) {
+		if (!p0.due) return
+		val ring = rings.getOrPut(p0.title) {
+			val headings = p0.cartonComponents
+					.filterIsInstance<DataBlock>()
+					.flatMap { it.dataLines }
+					.mapNotNull { it?.label }
+					.toTypedArray()
+			GroupRing(headings, rowsPerGroup)
+		}
+		if (ring.headings.isEmpty()) return
+
+		// filled without building intermediate lists, as this runs every update
+		val row = ring.next(System.nanoTime())
+		var column = 0
+		for (component in p0.cartonComponents) {
+			if (component !is DataBlock) continue
+			val dataLines = component.dataLines
+			for (i in 0 until dataLines.size) {
+				val dataLine = dataLines[i] ?: continue
+				if (column == row.size) return
+				row[column++] = dataLine.value.get()
+			}
+		}
+	}
+
+	override fun updatePublication() {
+		for (trigger in triggers) {
+			val value = trigger.condition.asBoolean
+			if (value && !trigger.wasTrue) pendingReason = trigger.reason
+			trigger.wasTrue = value
+		}
+		val reason = pendingReason ?: return
+		pendingReason = null
+		record(reason)
+	}
+
+	override fun ignoreUpdate(): Boolean = false
+
+	/**
+	 * writes out the rows from the last [seconds], then clears them, so they are not written again by the next recording
+	 */
+	@Synchronized
+	private fun record(reason: String) {
+		val triggerTime = System.nanoTime()
+		try {
+			rings.forEach { (title, ring) ->
+				if (ring.size == 0) return@forEach
+				val log = logMap.getOrPut(title) {
+					format.open("${title}_flight", listOf(directory), shelfLife, false, async = false)
+							.setHeadings("reason", "time", *ring.headings)
+				}
+				for (i in 0 until ring.size) {
+					val slot = (ring.start + i) % ring.rows.size
+					val timestamp = ring.timestamps[slot]
+					if (triggerTime - timestamp > window) continue
+					log.logData("reason", reason)
+					log.logData("time", (timestamp - triggerTime) / 1E9)
+					val row = ring.rows[slot]
+					ring.headings.forEachIndexed { column, heading -> log.logData(heading, row[column]) }
+					log.update()
+				}
+				ring.clear()
+			}
+			recordings++
+		}
+		catch (e: Exception) {
+			lastException = e
+		}
+	}
+
+	@Synchronized
+	private fun close(reason: String?) {
+		if (reason != null) record(reason)
+		pendingReason = null
+		logMap.forEach { (_, log) -> log.close() }
+		logMap.clear()
+		rings.clear()
+	}
+
+	/**
+	 * writes out any recording that was triggered but not yet written, and closes the logs
+	 */
+	override fun close() {
+		if (handler != null && Thread.getDefaultUncaughtExceptionHandler() === handler) {
+			Thread.setDefaultUncaughtExceptionHandler(previousHandler)
+		}
+		handler = null
+		previousHandler = null
+		close(pendingReason)
+	}
+}
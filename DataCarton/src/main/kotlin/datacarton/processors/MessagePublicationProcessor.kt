@@ -32,4 +32,10 @@ class MessageLogPublicationProcessor(val directory: String, val shelfLife: Int =
 			}
 		}
 	}
+
+	override fun close() {
+		logMap.forEach { (_, log) -> log.close() }
+		logMap.clear()
+		prevMap.clear()
+	}
 }
\ No newline at end of file
@@ -23,4 +23,9 @@ interface PublicationProcessor : Consumer<CartonComponentRenderer> {
 	 * gets run for each output Renderer
 	 */
 	override fun accept(p0: CartonComponentRenderer)
+
+	/**
+	 * gets run once publication has finished at the end of the OpMode, to release any held resources, like files
+	 */
+	fun close() {}
 }
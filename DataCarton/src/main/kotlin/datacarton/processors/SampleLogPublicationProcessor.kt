@@ -0,0 +1,58 @@
+package datacarton.processors
+
+import datacarton.CartonComponentRenderer
+import datacarton.DataCarton
+import datacarton.Sampler
+import log.DataLog
+import log.DataLogFormat
+import java.util.IdentityHashMap
+
+/**
+ * writes the samples captured by [DataCarton.sampler] to logs, one per sampled member, each update
+ *
+ * rows hold the time the sample was taken at, in seconds since the sampler started, and the sampled value
+ */
+class SampleLogPublicationProcessor(val directory: String, val shelfLife: Int = 7, val format: DataLogFormat = DataLogFormat.COLUMNAR) : PublicationProcessor {
+	private val logMap = IdentityHashMap<Sampler.Channel, DataLog>()
+	private var timestamps = LongArray(0)
+	private var values = DoubleArray(0)
+
+	override fun initPublication() {
+	}
+
+	override fun updatePublication() {
+		drain()
+	}
+
+	override fun ignoreUpdate(): Boolean = false
+
+	override fun accept(p0: CartonComponentRenderer) {
+	}
+
+	private fun drain() {
+		val sampler = DataCarton.sampler
+		for (channel in sampler.channels) {
+			if (timestamps.size < channel.capacity) {
+				timestamps = LongArray(channel.capacity)
+				values = DoubleArray(channel.capacity)
+			}
+			val count = channel.drainTo(timestamps, values)
+			if (count == 0) continue
+			val log = logMap.getOrPut(channel) {
+				format.open("${channel.group}_${channel.label}_samples", listOf(directory), shelfLife, false)
+						.setHeadings("time", channel.label)
+			}
+			for (i in 0 until count) {
+				log.logData("time", (timestamps[i] - sampler.startTime) / 1E9)
+				log.logData(channel.label, values[i])
+				log.update()
+			}
+		}
+	}
+
+	override fun close() {
+		drain()
+		logMap.forEach { (_, log) -> log.close() }
+		logMap.clear()
+	}
+}
@@ -18,7 +18,7 @@ sealed class ReflectionPublicationProcessor(private val output: Any, private val
 	}
 
 	override fun accept(p0: CartonComponentRenderer) {
-		outputBuilder.append(p0).append("\n")
+		p0.appendTo(outputBuilder).append("\n")
 	}
 
 	override fun updatePublication() {
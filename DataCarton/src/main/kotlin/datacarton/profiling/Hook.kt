@@ -0,0 +1,17 @@
+package datacarton.profiling
+
+/**
+ * the lifecycle hooks of a feature, in the order they run
+ */
+enum class Hook {
+	PRE_USER_INIT,
+	POST_USER_INIT,
+	PRE_USER_INIT_LOOP,
+	POST_USER_INIT_LOOP,
+	PRE_USER_START,
+	POST_USER_START,
+	PRE_USER_LOOP,
+	POST_USER_LOOP,
+	PRE_USER_STOP,
+	POST_USER_STOP,
+}
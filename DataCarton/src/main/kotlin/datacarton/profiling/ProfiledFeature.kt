@@ -0,0 +1,73 @@
+package datacarton.profiling
+
+import collections.LatencyHistogram
+import datacarton.annotations.Data
+import dev.frozenmilk.dairy.core.Feature
+import dev.frozenmilk.dairy.core.dependency.Dependency
+import dev.frozenmilk.dairy.core.wrapper.Wrapper
+
+/**
+ * runs the hooks of [feature], recording how long each takes into a [LatencyHistogram] per [Hook]
+ *
+ * register this in place of [feature], and @Pack it to see the p50, p99 and max of each phase through DataCarton, and so MilkMan
+ *
+ * features that depend on [feature] through its identity, like SingleFeature, won't see this as [feature], so profile features that nothing else depends on
+ *
+ * [feature] must not be registered itself, features that register themselves when they are constructed (like MilkMan's MilkManWSD) keep being run by Core directly,
+ * so wrapping one runs each of its hooks twice per phase, once untimed and once through here, only wrap features that are registered by hand
+ */
+class ProfiledFeature(val feature: Feature) : Feature {
+	override val dependency: Dependency<*>
+		get() = feature.dependency
+
+	private val histograms = Array(Hook.values().size) { LatencyHistogram() }
+
+	fun histogram(hook: Hook) = histograms[hook.ordinal]
+
+	private inline fun time(hook: Hook, block: () -> Unit) {
+		val start = System.nanoTime()
+		try {
+			block()
+		}
+		finally {
+			histograms[hook.ordinal].record(System.nanoTime() - start)
+		}
+	}
+
+	override fun preUserInitHook(opMode: Wrapper) = time(Hook.PRE_USER_INIT) { feature.preUserInitHook(opMode) }
+	override fun postUserInitHook(opMode: Wrapper) = time(Hook.POST_USER_INIT) { feature.postUserInitHook(opMode) }
+	override fun preUserInitLoopHook(opMode: Wrapper) = time(Hook.PRE_USER_INIT_LOOP) { feature.preUserInitLoopHook(opMode) }
+	override fun postUserInitLoopHook(opMode: Wrapper) = time(Hook.POST_USER_INIT_LOOP) { feature.postUserInitLoopHook(opMode) }
+	override fun preUserStartHook(opMode: Wrapper) = time(Hook.PRE_USER_START) { feature.preUserStartHook(opMode) }
+	override fun postUserStartHook(opMode: Wrapper) = time(Hook.POST_USER_START) { feature.postUserStartHook(opMode) }
+	override fun preUserLoopHook(opMode: Wrapper) = time(Hook.PRE_USER_LOOP) { feature.preUserLoopHook(opMode) }
+	override fun postUserLoopHook(opMode: Wrapper) = time(Hook.POST_USER_LOOP) { feature.postUserLoopHook(opMode) }
+	override fun preUserStopHook(opMode: Wrapper) = time(Hook.PRE_USER_STOP) { feature.preUserStopHook(opMode) }
+	override fun postUserStopHook(opMode: Wrapper) = time(Hook.POST_USER_STOP) { feature.postUserStopHook(opMode) }
+
+	override fun cleanup(opMode: Wrapper) = feature.cleanup(opMode)
+
+	fun reset() = histograms.forEach { it.reset() }
+
+	private fun LatencyHistogram.summary() =
+			"p50 ${percentile(50.0) / 1000}us p99 ${percentile(99.0) / 1000}us max ${max / 1000}us"
+
+	private fun phase(pre: Hook, post: Hook) = "pre ${histogram(pre).summary()} | post ${histogram(post).summary()}"
+
+	@Data
+	private fun init() = phase(Hook.PRE_USER_INIT, Hook.POST_USER_INIT)
+
+	@Data
+	private fun initLoop() = phase(Hook.PRE_USER_INIT_LOOP, Hook.POST_USER_INIT_LOOP)
+
+	@Data
+	private fun start() = phase(Hook.PRE_USER_START, Hook.POST_USER_START)
+
+	@Data
+	private fun loop() = phase(Hook.PRE_USER_LOOP, Hook.POST_USER_LOOP)
+
+	@Data
+	private fun stop() = phase(Hook.PRE_USER_STOP, Hook.POST_USER_STOP)
+
+	override fun toString() = "Profiled($feature)"
+}
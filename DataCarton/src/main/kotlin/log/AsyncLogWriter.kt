@@ -0,0 +1,147 @@
+package log
+
+import java.io.Closeable
+import java.io.IOException
+import java.io.Writer
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.ReentrantReadWriteLock
+import kotlin.concurrent.read
+import kotlin.concurrent.write
+
+/**
+ * writes lines to [writer] from a background thread, so that slow storage doesn't stall the thread logging the lines
+ *
+ * lines are queued in a bounded buffer, and written out in batches, with [writer] being flushed at most every [Settings.flushIntervalMillis],
+ * lines offered while the buffer is full are dropped, and counted by [droppedRows]
+ */
+class AsyncLogWriter(private val writer: Writer, val settings: Settings = Settings()) : Closeable {
+	/**
+	 * @param capacity the maximum number of lines that can be waiting to be written
+	 * @param flushIntervalMillis how often the underlying writer is flushed
+	 * @param closeTimeoutMillis how long [close] waits for queued lines to be written
+	 */
+	class Settings @JvmOverloads constructor(val capacity: Int = 1024, val flushIntervalMillis: Long = 500, val closeTimeoutMillis: Long = 1000) {
+		init {
+			require(capacity > 0) { "capacity must be greater than 0, was $capacity" }
+			require(flushIntervalMillis > 0) { "flushIntervalMillis must be greater than 0, was $flushIntervalMillis" }
+			require(closeTimeoutMillis >= 0) { "closeTimeoutMillis must not be negative, was $closeTimeoutMillis" }
+		}
+	}
+
+	// offered by close to wake the writing thread, compared by identity, the thread is never interrupted, as that would close a FileChannel under a MappedFileWriter
+	private val stop = String(CharArray(0))
+
+	private val queue = ArrayBlockingQueue<String>(settings.capacity)
+	private val batch = ArrayList<String>(settings.capacity)
+	private val dropped = AtomicLong()
+
+	// offers hold the read side, so once close has taken the write side and flipped running, nothing else can be queued
+	private val gate = ReentrantReadWriteLock()
+
+	@Volatile
+	private var running = true
+
+	/**
+	 * the last exception thrown while writing, lines in the batch being written when it was thrown are lost
+	 */
+	@Volatile
+	var lastException: IOException? = null
+		private set
+
+	/**
+	 * the number of lines that were dropped as the buffer was full, or that were still queued when [close] gave up waiting
+	 */
+	val droppedRows: Long
+		get() = dropped.get()
+
+	/**
+	 * the number of lines waiting to be written
+	 */
+	val pendingRows: Int
+		get() = queue.size
+
+	private val thread = Thread(this::run, "DataCarton Log Writer")
+
+	init {
+		thread.isDaemon = true
+		thread.start()
+	}
+
+	/**
+	 * queues [line] to be written, a new line is added after it
+	 *
+	 * @return false if the buffer was full, or the writer was closed, and the line was dropped
+	 */
+	fun offer(line: String): Boolean {
+		gate.read {
+			if (running && queue.offer(line)) return true
+		}
+		dropped.incrementAndGet()
+		return false
+	}
+
+	private fun run() {
+		val flushInterval = TimeUnit.MILLISECONDS.toNanos(settings.flushIntervalMillis)
+		var lastFlush = System.nanoTime()
+		while (running || queue.isNotEmpty()) {
+			val first = try {
+				queue.poll(settings.flushIntervalMillis, TimeUnit.MILLISECONDS)
+			}
+			catch (e: InterruptedException) {
+				null
+			}
+			try {
+				if (first != null) {
+					// group commit, everything that is currently waiting gets written together
+					batch.add(first)
+					queue.drainTo(batch)
+					for (line in batch) {
+						if (line === stop) continue
+						writer.write(line)
+						writer.write('\n'.code)
+					}
+				}
+				val now = System.nanoTime()
+				if (now - lastFlush >= flushInterval) {
+					writer.flush()
+					lastFlush = now
+				}
+			}
+			catch (e: IOException) {
+				lastException = e
+			}
+			finally {
+				batch.clear()
+			}
+		}
+		try {
+			writer.flush()
+			writer.close()
+		}
+		catch (e: IOException) {
+			lastException = e
+		}
+	}
+
+	/**
+	 * stops accepting lines, and waits up to [Settings.closeTimeoutMillis] for the queued lines to be written, [writer] is flushed and closed by the writing thread once it is done
+	 *
+	 * lines that are still queued when the wait runs out are discarded, and counted by [droppedRows]
+	 */
+	override fun close() {
+		gate.write {
+			if (!running) return
+			running = false
+		}
+		// if the queue is full the writing thread isn't waiting anyway
+		queue.offer(stop)
+		thread.join(settings.closeTimeoutMillis)
+		// the writing thread is stuck, it finishes its current batch and exits once the queue is empty
+		while (true) {
+			val line = queue.poll() ?: break
+			if (line !== stop) dropped.incrementAndGet()
+		}
+	}
+}
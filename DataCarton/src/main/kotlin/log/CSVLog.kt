@@ -1,18 +1,18 @@
 package log
 
-class CSVLog @JvmOverloads constructor(directoryName: String, parents: Collection<String> = emptyList(), shelfLife: Int = 7, val recordTime: Boolean = true) : Log(directoryName, parents, "csv", shelfLife) {
+class CSVLog @JvmOverloads constructor(directoryName: String, parents: Collection<String> = emptyList(), shelfLife: Int = 7, val recordTime: Boolean = true, asyncSettings: AsyncLogWriter.Settings? = AsyncLogWriter.Settings(), mappedSettings: MappedFileWriter.Settings? = null) : Log(directoryName, parents, "csv", shelfLife, asyncSettings, mappedSettings), DataLog {
     private val data = mutableMapOf<String, Any?>()
     private var order = emptyList<String>()
     private var inited = false
     private var startTime = 0L
-    fun setHeadings(vararg headings: String): CSVLog {
+    override fun setHeadings(vararg headings: String): CSVLog {
         check(!inited) { "headings cannot be set while the file is being written to" }
         order = if (recordTime) listOf("time") + headings
         else headings.toList()
         return this
     }
 
-    fun logData(heading: String, data: Any?): CSVLog {
+    override fun logData(heading: String, data: Any?): CSVLog {
         this.data[heading] = data
         return this
     }
@@ -22,21 +22,24 @@ class CSVLog @JvmOverloads constructor(directoryName: String, parents: Collectio
         return string
     }
 
-    fun update(): CSVLog {
+    private val rowBuilder = StringBuilder()
+
+    override fun update(): CSVLog {
         if (!inited) {
             order.forEach { heading ->
-                val out = "${formatString(heading)},"
-                out.forEach { writer.append(it) }
+                rowBuilder.append(formatString(heading)).append(',')
             }
+            writeLine(rowBuilder.toString())
+            rowBuilder.setLength(0)
             startTime = System.nanoTime()
             inited = true
         }
         if (recordTime) data["time"] = (System.nanoTime() - startTime) / 1E9
         order.forEach { heading ->
-            val out = "${formatString(data[heading]?.toString() ?: "")},"
-            out.forEach { writer.append(it) }
+            rowBuilder.append(formatString(data[heading]?.toString() ?: "")).append(',')
         }
-        writer.append("\n")
+        writeLine(rowBuilder.toString())
+        rowBuilder.setLength(0)
         data.clear()
         return this
     }
@@ -0,0 +1,51 @@
+package log
+
+import java.io.FileOutputStream
+
+/**
+ * logs rows of data to a compact binary file, using a [ColumnarLogWriter], see it for the file layout
+ *
+ * [ColumnarLogReader] reads these files back, and converts them to csv
+ */
+class ColumnarLog @JvmOverloads constructor(directoryName: String, parents: Collection<String> = emptyList(), shelfLife: Int = 7, val recordTime: Boolean = true, val blockSize: Int = 256) : Log(directoryName, parents, FILE_EXTENSION, shelfLife), DataLog {
+	private val columns = ColumnarLogWriter({ FileOutputStream(file) }, recordTime, blockSize)
+
+	override fun setHeadings(vararg headings: String): ColumnarLog {
+		columns.setHeadings(*headings)
+		return this
+	}
+
+	override fun logData(heading: String, data: Any?): ColumnarLog {
+		columns.logData(heading, data)
+		return this
+	}
+
+	override fun update(): ColumnarLog {
+		columns.update()
+		return this
+	}
+
+	/**
+	 * writes any buffered rows out to the file
+	 */
+	fun flush() {
+		columns.flush()
+	}
+
+	override fun close() {
+		columns.close()
+	}
+
+	companion object {
+		const val FILE_EXTENSION = "dcol"
+		internal const val MAGIC = "DCOL"
+		internal const val VERSION = 1
+		internal const val BLOCK_MARKER = 0x42 // 'B'
+
+		internal const val EMPTY = 0
+		internal const val DOUBLE = 1
+		internal const val LONG = 2
+		internal const val BOOLEAN = 3
+		internal const val STRING = 4
+	}
+}
@@ -0,0 +1,176 @@
+package log
+
+import java.io.BufferedInputStream
+import java.io.BufferedWriter
+import java.io.Closeable
+import java.io.DataInputStream
+import java.io.EOFException
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileWriter
+import java.io.IOException
+import java.io.InputStream
+
+/**
+ * reads files written by [ColumnarLog]
+ *
+ * does not depend on the robot controller, so it can be run on a desktop to convert logs pulled off the robot:
+ * ```
+ * java -cp DataCarton.jar:kotlin-stdlib.jar log.ColumnarLogReader <input.dcol> [output.csv]
+ * ```
+ */
+class ColumnarLogReader(input: InputStream) : Closeable {
+	private val input = DataInputStream(BufferedInputStream(input))
+	val recordTime: Boolean
+	val headings: List<String>
+	private val dictionary = ArrayList<String>()
+
+	init {
+		val magic = ByteArray(ColumnarLog.MAGIC.length)
+		this.input.readFully(magic)
+		if (String(magic, Charsets.US_ASCII) != ColumnarLog.MAGIC) throw IOException("not a DataCarton columnar log")
+		val version = this.input.readUnsignedByte()
+		if (version != ColumnarLog.VERSION) throw IOException("unsupported DataCarton columnar log version $version")
+		recordTime = this.input.readBoolean()
+		headings = List(readVarLong().toInt()) { this.input.readUTF() }
+	}
+
+	/**
+	 * a block of rows, [values] is indexed by column, then by row, [timestamps] are in nanoseconds since the first row of the log
+	 */
+	class Block(val timestamps: LongArray, val values: Array<Array<Any?>>) {
+		val rows: Int
+			get() = timestamps.size
+	}
+
+	/**
+	 * @return the next block, or null if the end of the file has been reached
+	 */
+	fun readBlock(): Block? {
+		val marker = input.read()
+		if (marker == -1) return null
+		if (marker != ColumnarLog.BLOCK_MARKER) throw IOException("malformed block marker $marker")
+		val rows = readVarLong().toInt()
+		val firstTimestamp = input.readLong()
+		input.readLong() // last timestamp
+
+		repeat(readVarLong().toInt()) { dictionary.add(input.readUTF()) }
+
+		val timestamps = LongArray(rows)
+		var timestamp = firstTimestamp
+		for (row in 0 until rows) {
+			timestamp += readVarLong()
+			timestamps[row] = timestamp
+		}
+
+		return Block(timestamps, Array(headings.size) { readColumn(rows) })
+	}
+
+	private fun readColumn(rows: Int): Array<Any?> {
+		val column = arrayOfNulls<Any?>(rows)
+		val type = input.readUnsignedByte()
+		if (type == ColumnarLog.EMPTY) return column
+
+		val present = BooleanArray(rows)
+		var bits = 0
+		for (row in 0 until rows) {
+			if (row and 7 == 0) bits = input.readUnsignedByte()
+			present[row] = bits and (1 shl (row and 7)) != 0
+		}
+
+		when (type) {
+			ColumnarLog.DOUBLE -> for (row in 0 until rows) {
+				if (present[row]) column[row] = input.readDouble()
+			}
+			ColumnarLog.LONG -> {
+				var previous = 0L
+				for (row in 0 until rows) {
+					if (!present[row]) continue
+					previous += unZigZag(readVarLong())
+					column[row] = previous
+				}
+			}
+			ColumnarLog.BOOLEAN -> {
+				var index = 0
+				for (row in 0 until rows) {
+					if (!present[row]) continue
+					if (index and 7 == 0) bits = input.readUnsignedByte()
+					column[row] = bits and (1 shl (index and 7)) != 0
+					index++
+				}
+			}
+			ColumnarLog.STRING -> for (row in 0 until rows) {
+				if (present[row]) column[row] = dictionary[readVarLong().toInt()]
+			}
+			else -> throw IOException("unknown column type $type")
+		}
+		return column
+	}
+
+	/**
+	 * writes the whole log out as csv, with a time column in seconds if [recordTime] was set
+	 */
+	fun toCSV(output: Appendable) {
+		val timeHeading = if (recordTime) listOf("time") else emptyList()
+		(timeHeading + headings).joinTo(output, ",") { formatString(it) }
+		output.append('\n')
+
+		var block = readBlock()
+		while (block != null) {
+			for (row in 0 until block.rows) {
+				if (recordTime) {
+					output.append((block.timestamps[row] / 1E9).toString())
+					if (headings.isNotEmpty()) output.append(',')
+				}
+				for (column in headings.indices) {
+					if (column != 0) output.append(',')
+					output.append(formatString(block.values[column][row]?.toString() ?: ""))
+				}
+				output.append('\n')
+			}
+			block = readBlock()
+		}
+	}
+
+	override fun close() {
+		input.close()
+	}
+
+	private fun formatString(string: String): String {
+		if (string.any { it in charArrayOf(',', '\n', '\r', '"') }) return "\"${string.replace("\"", "\"\"")}\""
+		return string
+	}
+
+	private fun readVarLong(): Long {
+		var result = 0L
+		var shift = 0
+		while (shift < 64) {
+			val byte = input.read()
+			if (byte == -1) throw EOFException()
+			result = result or ((byte and 0x7F).toLong() shl shift)
+			if (byte and 0x80 == 0) return result
+			shift += 7
+		}
+		throw IOException("malformed varint")
+	}
+
+	private fun unZigZag(value: Long) = (value ushr 1) xor -(value and 1L)
+
+	companion object {
+		/**
+		 * converts a columnar log to csv, the output defaults to the input file with a .csv extension
+		 */
+		@JvmStatic
+		fun main(args: Array<String>) {
+			if (args.isEmpty()) {
+				System.err.println("usage: ColumnarLogReader <input.${ColumnarLog.FILE_EXTENSION}> [output.csv]")
+				return
+			}
+			val input = File(args[0])
+			val output = if (args.size > 1) File(args[1]) else File(input.parentFile, input.nameWithoutExtension + ".csv")
+			ColumnarLogReader(FileInputStream(input)).use { reader ->
+				BufferedWriter(FileWriter(output)).use { reader.toCSV(it) }
+			}
+		}
+	}
+}
@@ -0,0 +1,224 @@
+package log
+
+import log.ColumnarLog.Companion.BLOCK_MARKER
+import log.ColumnarLog.Companion.BOOLEAN
+import log.ColumnarLog.Companion.DOUBLE
+import log.ColumnarLog.Companion.EMPTY
+import log.ColumnarLog.Companion.LONG
+import log.ColumnarLog.Companion.MAGIC
+import log.ColumnarLog.Companion.STRING
+import log.ColumnarLog.Companion.VERSION
+import java.io.BufferedOutputStream
+import java.io.Closeable
+import java.io.DataOutputStream
+import java.io.OutputStream
+import java.util.Arrays
+
+/**
+ * writes rows of data to a compact binary stream, rows are buffered and written out in blocks of [blockSize] rows, stored column by column, [ColumnarLog] writes these to a log file
+ *
+ * the types of each column are picked per block, from the values logged in it, [ColumnarLogReader] reads these files back, and converts them to csv
+ *
+ * file layout:
+ * ```
+ * header:
+ *   magic "DCOL", version (byte), recordTime (boolean), column count (varint), column names (utf)
+ * block, repeated:
+ *   'B' (byte), row count (varint), first and last timestamp (long, nanoseconds since the first row)
+ *   new dictionary entries: count (varint), entries (utf)
+ *   timestamps: delta from the previous row (varint)
+ *   per column: type (byte), present rows bitmap (ceil(rows / 8) bytes), then for each present row:
+ *     DOUBLE: 8 bytes, LONG: zigzag varint delta from the previous value, BOOLEAN: packed bitmap, STRING: dictionary index (varint)
+ * ```
+ *
+ * @param openOutput opens the stream to write to, called when the first row is written, the stream is closed by [close]
+ */
+class ColumnarLogWriter @JvmOverloads constructor(private val openOutput: () -> OutputStream, val recordTime: Boolean = true, val blockSize: Int = 256) : DataLog, Closeable {
+	private val output by lazy { DataOutputStream(BufferedOutputStream(openOutput())) }
+	private var headings: Array<out String> = emptyArray()
+	private val columnIndices = HashMap<String, Int>()
+	private var columns: Array<Array<Any?>> = emptyArray()
+	private var types = IntArray(0)
+	private val timestamps = LongArray(blockSize)
+	private var rows = 0
+	private var inited = false
+	private var closed = false
+	private var startTime = 0L
+
+	private val dictionary = HashMap<String, Int>()
+	private val newEntries = ArrayList<String>()
+
+	init {
+		require(blockSize > 0) { "blockSize must be greater than 0, was $blockSize" }
+	}
+
+	override fun setHeadings(vararg headings: String): ColumnarLogWriter {
+		check(!inited) { "headings cannot be set while the file is being written to" }
+		this.headings = headings
+		columnIndices.clear()
+		headings.forEachIndexed { index, heading -> columnIndices[heading] = index }
+		columns = Array(headings.size) { arrayOfNulls(blockSize) }
+		types = IntArray(headings.size)
+		return this
+	}
+
+	override fun logData(heading: String, data: Any?): ColumnarLogWriter {
+		val index = columnIndices[heading] ?: return this
+		columns[index][rows] = data
+		return this
+	}
+
+	override fun update(): ColumnarLogWriter {
+		check(!closed) { "log has been closed" }
+		if (!inited) {
+			writeHeader()
+			startTime = System.nanoTime()
+			inited = true
+		}
+		timestamps[rows++] = System.nanoTime() - startTime
+		if (rows == blockSize) writeBlock()
+		return this
+	}
+
+	/**
+	 * writes any buffered rows out to the file
+	 */
+	fun flush() {
+		if (!inited) return
+		if (rows != 0) writeBlock()
+		output.flush()
+	}
+
+	override fun close() {
+		if (closed) return
+		flush()
+		if (inited) output.close()
+		closed = true
+	}
+
+	private fun writeHeader() {
+		output.writeBytes(MAGIC)
+		output.writeByte(VERSION)
+		output.writeBoolean(recordTime)
+		writeVarLong(headings.size.toLong())
+		headings.forEach { output.writeUTF(it) }
+	}
+
+	private fun writeBlock() {
+		// decide the types first, so that the new dictionary entries can be written ahead of the columns that use them
+		for (column in columns.indices) {
+			types[column] = columnType(columns[column])
+			if (types[column] == STRING) addDictionaryEntries(columns[column])
+		}
+
+		output.writeByte(BLOCK_MARKER)
+		writeVarLong(rows.toLong())
+		output.writeLong(timestamps[0])
+		output.writeLong(timestamps[rows - 1])
+
+		writeVarLong(newEntries.size.toLong())
+		newEntries.forEach { output.writeUTF(it) }
+		newEntries.clear()
+
+		var previousTimestamp = timestamps[0]
+		for (row in 0 until rows) {
+			writeVarLong(timestamps[row] - previousTimestamp)
+			previousTimestamp = timestamps[row]
+		}
+
+		for (column in columns.indices) {
+			writeColumn(columns[column], types[column])
+			Arrays.fill(columns[column], null)
+		}
+
+		rows = 0
+	}
+
+	private fun columnType(column: Array<Any?>): Int {
+		var type = EMPTY
+		for (row in 0 until rows) {
+			val value = column[row] ?: continue
+			val valueType = when (value) {
+				is Double, is Float -> DOUBLE
+				is Long, is Int, is Short, is Byte -> LONG
+				is Boolean -> BOOLEAN
+				else -> return STRING
+			}
+			type = when {
+				type == EMPTY || type == valueType -> valueType
+				(type == DOUBLE && valueType == LONG) || (type == LONG && valueType == DOUBLE) -> DOUBLE
+				else -> return STRING
+			}
+		}
+		return type
+	}
+
+	private fun addDictionaryEntries(column: Array<Any?>) {
+		for (row in 0 until rows) {
+			val value = column[row]?.toString() ?: continue
+			if (dictionary.containsKey(value)) continue
+			dictionary[value] = dictionary.size
+			newEntries.add(value)
+		}
+	}
+
+	private fun writeColumn(column: Array<Any?>, type: Int) {
+		output.writeByte(type)
+		if (type == EMPTY) return
+
+		// presence bitmap
+		var bits = 0
+		for (row in 0 until rows) {
+			if (column[row] != null) bits = bits or (1 shl (row and 7))
+			if (row and 7 == 7) {
+				output.writeByte(bits)
+				bits = 0
+			}
+		}
+		if (rows and 7 != 0) output.writeByte(bits)
+
+		when (type) {
+			DOUBLE -> for (row in 0 until rows) {
+				val value = column[row] as? Number ?: continue
+				output.writeDouble(value.toDouble())
+			}
+			LONG -> {
+				var previous = 0L
+				for (row in 0 until rows) {
+					val value = (column[row] as? Number ?: continue).toLong()
+					writeVarLong(zigZag(value - previous))
+					previous = value
+				}
+			}
+			BOOLEAN -> {
+				var index = 0
+				bits = 0
+				for (row in 0 until rows) {
+					val value = column[row] as? Boolean ?: continue
+					if (value) bits = bits or (1 shl (index and 7))
+					if (index and 7 == 7) {
+						output.writeByte(bits)
+						bits = 0
+					}
+					index++
+				}
+				if (index and 7 != 0) output.writeByte(bits)
+			}
+			STRING -> for (row in 0 until rows) {
+				val value = column[row]?.toString() ?: continue
+				writeVarLong(dictionary[value]!!.toLong())
+			}
+		}
+	}
+
+	private fun writeVarLong(value: Long) {
+		var remaining = value
+		while (remaining and 0x7FL.inv() != 0L) {
+			output.writeByte(((remaining and 0x7FL) or 0x80L).toInt())
+			remaining = remaining ushr 7
+		}
+		output.writeByte(remaining.toInt())
+	}
+
+	private fun zigZag(value: Long) = (value shl 1) xor (value shr 63)
+}
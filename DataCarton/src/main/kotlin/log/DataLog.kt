@@ -0,0 +1,23 @@
+package log
+
+/**
+ * a log of rows of data, stored under fixed headings
+ */
+interface DataLog {
+	/**
+	 * sets the headings of the log, cannot be called once the log has been written to
+	 */
+	fun setHeadings(vararg headings: String): DataLog
+
+	/**
+	 * sets the value of [heading] in the current row
+	 */
+	fun logData(heading: String, data: Any?): DataLog
+
+	/**
+	 * writes the current row, and starts a new one
+	 */
+	fun update(): DataLog
+
+	fun close()
+}
@@ -0,0 +1,35 @@
+package log
+
+/**
+ * the file formats a [DataLog] can be written in
+ */
+enum class DataLogFormat {
+	/**
+	 * plain text, comma separated values, see [CSVLog]
+	 */
+	CSV {
+		override fun open(directoryName: String, parents: Collection<String>, shelfLife: Int, recordTime: Boolean, async: Boolean): DataLog =
+				CSVLog(directoryName, parents, shelfLife, recordTime, if (async) AsyncLogWriter.Settings() else null)
+	},
+
+	/**
+	 * csv written straight into a memory mapped file, so rows are kept if the app is killed mid OpMode, see [MappedFileWriter]
+	 */
+	MAPPED_CSV {
+		override fun open(directoryName: String, parents: Collection<String>, shelfLife: Int, recordTime: Boolean, async: Boolean): DataLog =
+				CSVLog(directoryName, parents, shelfLife, recordTime, null, MappedFileWriter.Settings())
+	},
+
+	/**
+	 * compact binary columns, see [ColumnarLog], use [ColumnarLogReader] to convert to csv
+	 */
+	COLUMNAR {
+		override fun open(directoryName: String, parents: Collection<String>, shelfLife: Int, recordTime: Boolean, async: Boolean): DataLog =
+				ColumnarLog(directoryName, parents, shelfLife, recordTime)
+	};
+
+	/**
+	 * @param async if rows may be handed off to an [AsyncLogWriter], which drops them if its buffer fills, only [CSV] writes asynchronously, the other formats always write on the calling thread
+	 */
+	abstract fun open(directoryName: String, parents: Collection<String>, shelfLife: Int, recordTime: Boolean, async: Boolean = true): DataLog
+}
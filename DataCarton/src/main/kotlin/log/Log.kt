@@ -4,6 +4,7 @@ import org.firstinspires.ftc.robotcore.internal.system.AppUtil
 import java.io.BufferedWriter
 import java.io.File
 import java.io.FileWriter
+import java.io.Writer
 import java.text.ParseException
 import java.text.SimpleDateFormat
 import java.util.Date
@@ -14,9 +15,24 @@ import java.util.Locale
  *
  * @param fileExtension should not include the '.' character
  * @param shelfLife number of days that log files should be kept for, logs this many days old will be removed
+ * @param asyncSettings if not null, lines written by [writeLine] are handed off to an [AsyncLogWriter] with these settings, rather than being written on the calling thread
+ * @param mappedSettings if not null, [writer] writes straight into a memory mapped file using a [MappedFileWriter] with these settings, so that lines are not lost if the app is killed
  */
-abstract class Log(directoryName: String, parents: Collection<String>, fileExtension: String, shelfLife: Int) {
-    val writer: BufferedWriter
+abstract class Log @JvmOverloads constructor(directoryName: String, parents: Collection<String>, fileExtension: String, shelfLife: Int, private val asyncSettings: AsyncLogWriter.Settings? = null, private val mappedSettings: MappedFileWriter.Settings? = null) {
+    /**
+     * the file being logged to
+     */
+    val file: File
+    private val writerDelegate = lazy {
+        if (mappedSettings != null) MappedFileWriter(file, mappedSettings)
+        else BufferedWriter(FileWriter(file))
+    }
+
+    /**
+     * text writer for [file], opened on first use, binary logs should open their own stream against [file] instead
+     */
+    val writer: Writer by writerDelegate
+
     init {
         val directory = File(AppUtil.FIRST_FOLDER, "/DataCarton/logs/${
             parents.reduce { acc, s -> 
@@ -48,13 +64,40 @@ abstract class Log(directoryName: String, parents: Collection<String>, fileExten
                 it.delete()
                 return@forEach
             }
+            // trims logs that were being written when the app was killed
+            if (mappedSettings != null && it.extension == fileExtension) MappedFileWriter.recover(it)
         }
         // set up new file
-        val file = File(directory, dateFormat.format(date) + ".$fileExtension")
-        writer = BufferedWriter(FileWriter(file))
+        file = File(directory, dateFormat.format(date) + ".$fileExtension")
     }
 
-    fun close() {
+    private val asyncWriterDelegate = lazy { AsyncLogWriter(writer, asyncSettings!!) }
+
+    /**
+     * the number of lines dropped as the async write buffer was full
+     */
+    val droppedLines: Long
+        get() = if (asyncWriterDelegate.isInitialized()) asyncWriterDelegate.value.droppedRows else 0L
+
+    /**
+     * writes [line] followed by a new line to [writer], via the [AsyncLogWriter] if async writing is enabled
+     */
+    protected fun writeLine(line: String) {
+        if (asyncSettings != null) {
+            asyncWriterDelegate.value.offer(line)
+            return
+        }
+        writer.write(line)
+        writer.write('\n'.code)
+    }
+
+    open fun close() {
+        if (asyncWriterDelegate.isInitialized()) {
+            // flushes and closes the writer
+            asyncWriterDelegate.value.close()
+            return
+        }
+        if (!writerDelegate.isInitialized()) return
         writer.flush()
         writer.close()
     }
@@ -0,0 +1,131 @@
+package log
+
+import java.io.File
+import java.io.RandomAccessFile
+import java.io.Writer
+import java.nio.ByteBuffer
+import java.nio.CharBuffer
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.charset.CodingErrorAction
+
+/**
+ * writes text straight into a memory mapped region of [file], which grows in chunks of [Settings.chunkSize] bytes
+ *
+ * text is durable as soon as it is written, even if the app is killed without [close] being called, as the mapping belongs to the os, so [flush] does nothing,
+ * [force] can be used to also survive a loss of power
+ *
+ * [close] truncates the file to the written length, if the file was not closed, the end of the last chunk is left filled with zeros, which [recover] trims off
+ */
+class MappedFileWriter @JvmOverloads constructor(file: File, val settings: Settings = Settings()) : Writer() {
+	/**
+	 * @param chunkSize the number of bytes mapped at a time
+	 */
+	class Settings @JvmOverloads constructor(val chunkSize: Int = 1 shl 20) {
+		init {
+			// needs to be able to fit any single encoded character
+			require(chunkSize >= 16) { "chunkSize must be at least 16, was $chunkSize" }
+		}
+	}
+
+	private val randomAccessFile = RandomAccessFile(file, "rw")
+	private val channel = randomAccessFile.channel
+	private var chunkStart = 0L
+	private var buffer = map(chunkStart)
+	private val encoder = Charsets.UTF_8.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE)
+	private var closed = false
+
+	/**
+	 * the number of bytes written
+	 */
+	val length: Long
+		get() = chunkStart + buffer.position()
+
+	private fun map(position: Long): MappedByteBuffer = channel.map(FileChannel.MapMode.READ_WRITE, position, settings.chunkSize.toLong())
+
+	private fun encode(input: CharBuffer) {
+		check(!closed) { "writer has been closed" }
+		while (true) {
+			val result = encoder.encode(input, buffer, false)
+			if (result.isOverflow) {
+				// map the next chunk, starting from where we got up to
+				chunkStart += buffer.position()
+				buffer = map(chunkStart)
+				continue
+			}
+			if (result.isError) result.throwException()
+			return
+		}
+	}
+
+	override fun write(cbuf: CharArray, off: Int, len: Int) {
+		encode(CharBuffer.wrap(cbuf, off, len))
+	}
+
+	override fun write(str: String, off: Int, len: Int) {
+		encode(CharBuffer.wrap(str, off, off + len))
+	}
+
+	override fun write(c: Int) {
+		if (c < 0x80 && buffer.hasRemaining()) {
+			check(!closed) { "writer has been closed" }
+			buffer.put(c.toByte())
+			return
+		}
+		super.write(c)
+	}
+
+	/**
+	 * does nothing, the contents of the mapping are already visible to the os
+	 */
+	override fun flush() {}
+
+	/**
+	 * forces the written contents out to storage
+	 */
+	fun force() {
+		buffer.force()
+	}
+
+	override fun close() {
+		if (closed) return
+		closed = true
+		channel.truncate(length)
+		channel.close()
+		randomAccessFile.close()
+	}
+
+	companion object {
+		/**
+		 * trims the zero filled tail left at the end of a text file written by a [MappedFileWriter] that was not closed
+		 *
+		 * does nothing if the file doesn't end with a zero byte, should not be used on binary files
+		 */
+		@JvmStatic
+		fun recover(file: File) {
+			RandomAccessFile(file, "rw").use { randomAccessFile ->
+				val channel = randomAccessFile.channel
+				var end = channel.size()
+				val block = ByteBuffer.allocate(8192)
+				while (end > 0) {
+					val start = (end - block.capacity()).coerceAtLeast(0)
+					block.clear()
+					block.limit((end - start).toInt())
+					while (block.hasRemaining()) {
+						if (channel.read(block, start + block.position()) < 0) break
+					}
+					var index = block.position() - 1
+					while (index >= 0 && block.get(index) == 0.toByte()) index--
+					if (index >= 0) {
+						end = start + index + 1
+						break
+					}
+					end = start
+				}
+				if (end != channel.size()) channel.truncate(end)
+			}
+		}
+	}
+}
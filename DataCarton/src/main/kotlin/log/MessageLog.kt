@@ -1,10 +1,7 @@
 package log
 
-class MessageLog(directoryName: String, parents: Collection<String> = emptyList(), shelfLife: Int = 7) : Log(directoryName, parents, "txt", shelfLife) {
+class MessageLog @JvmOverloads constructor(directoryName: String, parents: Collection<String> = emptyList(), shelfLife: Int = 7, asyncSettings: AsyncLogWriter.Settings? = AsyncLogWriter.Settings(), mappedSettings: MappedFileWriter.Settings? = null) : Log(directoryName, parents, "txt", shelfLife, asyncSettings, mappedSettings) {
 	fun publish(message: Any?) {
-		message.toString().forEach {
-			writer.append(it)
-		}
-		writer.append("\n")
+		writeLine(message.toString())
 	}
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+import log.AsyncLogWriter
+import log.MappedFileWriter
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.File
+import java.io.StringWriter
+
+class AsyncLogWriterTest {
+    @Test
+    fun writesEverythingThroughAMappedWriter() {
+        val file = File.createTempFile("asyncMapped", ".csv")
+        // small chunks, so the writing thread is remapping the file while close is called
+        val async = AsyncLogWriter(MappedFileWriter(file, MappedFileWriter.Settings(64)), AsyncLogWriter.Settings(4096))
+        val expected = StringBuilder()
+        for (i in 0 until 2000) {
+            val line = "line $i,${i * 0.5}"
+            assertTrue(async.offer(line))
+            expected.append(line).append('\n')
+        }
+        async.close()
+        assertNull(async.lastException)
+        assertEquals(0L, async.droppedRows)
+        // truncated to the written length, no zero filled tail
+        assertEquals(expected.toString(), file.readText())
+        file.delete()
+    }
+
+    @Test
+    fun closeWakesTheWriter() {
+        val output = StringWriter()
+        // the writing thread would otherwise sleep for the whole flush interval
+        val async = AsyncLogWriter(output, AsyncLogWriter.Settings(16, 60_000, 10_000))
+        assertTrue(async.offer("a"))
+        val start = System.nanoTime()
+        async.close()
+        assertTrue((System.nanoTime() - start) < 5_000_000_000L)
+        assertEquals("a\n", output.toString())
+        assertEquals(0L, async.droppedRows)
+
+        // closed, so dropped
+        assertEquals(false, async.offer("b"))
+        assertEquals(1L, async.droppedRows)
+        async.close()
+    }
+}
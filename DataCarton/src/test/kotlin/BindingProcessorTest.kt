@@ -0,0 +1,145 @@
+import collections.annotatedtargets.ClassBinding
+import collections.annotatedtargets.ClassMetadata
+import com.google.testing.compile.Compilation
+import com.google.testing.compile.Compiler.javac
+import com.google.testing.compile.JavaFileObjects
+import datacarton.binding.BindingProcessor
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.lang.reflect.AccessibleObject
+import java.lang.reflect.Member
+import javax.tools.JavaFileObject
+
+class BindingProcessorTest {
+    private val fixture = JavaFileObjects.forSourceString("fixture.Robot", """
+        package fixture;
+
+        import datacarton.annotations.Data;
+        import datacarton.annotations.Export;
+        import datacarton.annotations.Pack;
+
+        public class Robot {
+            private double position = 0.0;
+
+            @Data
+            public final String name = "robot";
+
+            @Data
+            private final int hidden = 7;
+
+            @Pack
+            @Export
+            public final Object child = new Object();
+
+            @Data(label = "position")
+            public double position() {
+                position += 1.5;
+                return position;
+            }
+
+            @Data
+            public boolean moving() {
+                return position > 2.0;
+            }
+
+            @Data
+            int ticks() {
+                return 42;
+            }
+
+            @Data
+            public String state() {
+                return "idle";
+            }
+
+            @Data
+            private float secret() {
+                return 3.0f;
+            }
+
+            public double notAnnotated() {
+                return 0.0;
+            }
+        }
+    """.trimIndent())
+
+    private fun compile(): Compilation {
+        val compilation = javac().withProcessors(BindingProcessor()).compile(fixture)
+        assertEquals(compilation.diagnostics().toString(), Compilation.Status.SUCCESS, compilation.status())
+        return compilation
+    }
+
+    /**
+     * loads the compiled classes, leaving out the binding if [withBinding] is false, so that [ClassMetadata] falls back to reflection
+     */
+    private fun load(compilation: Compilation, withBinding: Boolean): Class<*> {
+        val classes = compilation.generatedFiles()
+                .filter { it.kind == JavaFileObject.Kind.CLASS }
+                .associate { file ->
+                    val name = file.name.substringAfter("CLASS_OUTPUT/").removeSuffix(".class").replace('/', '.')
+                    name to file.openInputStream().use { it.readBytes() }
+                }
+                .filterKeys { withBinding || !it.endsWith(ClassBinding.SUFFIX) }
+        val loader = object : ClassLoader(javaClass.classLoader) {
+            override fun findClass(name: String): Class<*> {
+                val bytes = classes[name] ?: throw ClassNotFoundException(name)
+                return defineClass(name, bytes, 0, bytes.size)
+            }
+        }
+        return loader.loadClass("fixture.Robot")
+    }
+
+    private fun names(members: List<AccessibleObject>) = members.map { (it as Member).name }.sorted()
+
+    @Test
+    fun generatesBinding() {
+        val source = compile().generatedSourceFile("fixture.Robot" + ClassBinding.SUFFIX)
+        assertTrue(source.isPresent)
+
+        val binding = ClassBinding.find(load(compile(), true))
+        assertNotNull(binding)
+        binding!!
+        // private members are listed, but left to reflection, members are listed in no particular order
+        assertEquals(mapOf("name" to true, "hidden" to false, "child" to true), binding.fields.zip(binding.boundFields.toList()).toMap())
+        assertEquals(mapOf("position" to true, "moving" to true, "ticks" to true, "state" to true, "secret" to false), binding.methods.zip(binding.boundMethods.toList()).toMap())
+
+        assertNull(ClassBinding.find(load(compile(), false)))
+    }
+
+    @Test
+    fun bindingMatchesReflection() {
+        val compilation = compile()
+        val bound = ClassMetadata.of(load(compilation, true))
+        val reflected = ClassMetadata.of(load(compilation, false))
+
+        assertEquals(names(reflected.dataMembers), names(bound.dataMembers))
+        assertEquals(names(reflected.packMembers), names(bound.packMembers))
+        assertEquals(listOf("child"), names(bound.packMembers))
+
+        val boundChild = bound.packMembers.single()
+        val reflectedChild = reflected.packMembers.single()
+        assertNotNull(bound.export(boundChild))
+        assertEquals(reflected.export(reflectedChild) != null, bound.export(boundChild) != null)
+
+        // otherwise this would be comparing reflection to itself
+        val boundPosition = bound.dataMembers.first { (it as Member).name == "position" }
+        assertEquals("BoundMethodAccessor", bound.accessor(boundPosition).javaClass.simpleName)
+
+        val boundInstance = bound.target.getDeclaredConstructor().newInstance()
+        val reflectedInstance = reflected.target.getDeclaredConstructor().newInstance()
+        val reflectedMembers = reflected.dataMembers.associateBy { (it as Member).name }
+        // position changes each call, so this also checks the getters are called every read, rather than cached
+        repeat(3) {
+            for (member in bound.dataMembers) {
+                val reflectedMember = reflectedMembers.getValue((member as Member).name)
+                val expected = reflected.accessor(reflectedMember).get(reflectedInstance)
+                assertEquals(member.name, expected, bound.accessor(member).get(boundInstance))
+                assertEquals(member.name, reflected.accessor(reflectedMember).getDouble(reflectedInstance), bound.accessor(member).getDouble(boundInstance), 0.0)
+                assertEquals(member.name, reflected.accessor(reflectedMember).getString(reflectedInstance), bound.accessor(member).getString(boundInstance))
+            }
+        }
+    }
+}
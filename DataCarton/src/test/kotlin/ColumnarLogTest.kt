@@ -0,0 +1,103 @@
+import log.ColumnarLogReader
+import log.ColumnarLogWriter
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+
+class ColumnarLogTest {
+    private val states = listOf("idle", "run, fast", "say \"hi\"")
+
+    // 10 rows in blocks of 4, so the last block is partly full
+    private fun write(recordTime: Boolean): ByteArray {
+        val bytes = ByteArrayOutputStream()
+        val log = ColumnarLogWriter({ bytes }, recordTime, 4)
+        log.setHeadings("x", "count", "flag", "state", "mixed")
+        for (i in 0 until 10) {
+            if (i != 3) log.logData("x", i * 0.5)
+            if (i != 0) log.logData("count", (i - 5) * 1000L)
+            log.logData("flag", i % 3 == 0)
+            log.logData("state", states[i % 3])
+            log.logData("mixed", when {
+                // doubles and ints in one block are stored as doubles
+                i < 4 -> if (i % 2 == 0) i else i * 0.25
+                // only ints
+                i < 8 -> i
+                // an int and a boolean fall back to strings
+                i == 8 -> i
+                else -> true
+            })
+            // not one of the headings, ignored
+            log.logData("unknown", i)
+            log.update()
+        }
+        log.close()
+        return bytes.toByteArray()
+    }
+
+    @Test
+    fun roundTripToCSV() {
+        val output = StringBuilder()
+        ColumnarLogReader(ByteArrayInputStream(write(false))).use { it.toCSV(output) }
+
+        val mixed = listOf("0.0", "0.25", "2.0", "0.75", "4", "5", "6", "7", "8", "true")
+        val expected = StringBuilder("x,count,flag,state,mixed\n")
+        for (i in 0 until 10) {
+            val state = when (i % 3) {
+                0 -> "idle"
+                1 -> "\"run, fast\""
+                else -> "\"say \"\"hi\"\"\""
+            }
+            expected.append(if (i != 3) (i * 0.5).toString() else "").append(',')
+                    .append(if (i != 0) ((i - 5) * 1000L).toString() else "").append(',')
+                    .append(i % 3 == 0).append(',')
+                    .append(state).append(',')
+                    .append(mixed[i]).append('\n')
+        }
+        assertEquals(expected.toString(), output.toString())
+    }
+
+    @Test
+    fun blocksAndTimestamps() {
+        val reader = ColumnarLogReader(ByteArrayInputStream(write(true)))
+        assertTrue(reader.recordTime)
+        assertEquals(listOf("x", "count", "flag", "state", "mixed"), reader.headings)
+
+        val sizes = ArrayList<Int>()
+        var previous = 0L
+        var block = reader.readBlock()
+        while (block != null) {
+            sizes.add(block.rows)
+            for (timestamp in block.timestamps) {
+                assertTrue(timestamp >= previous)
+                previous = timestamp
+            }
+            block = reader.readBlock()
+        }
+        assertEquals(listOf(4, 4, 2), sizes)
+        assertNull(reader.readBlock())
+        reader.close()
+    }
+
+    @Test
+    fun typedValues() {
+        val reader = ColumnarLogReader(ByteArrayInputStream(write(false)))
+        val first = reader.readBlock()!!
+        // x, count, flag, state, mixed
+        assertArrayEquals(arrayOf<Any?>(0.0, 0.5, 1.0, null), first.values[0])
+        assertArrayEquals(arrayOf<Any?>(null, -4000L, -3000L, -2000L), first.values[1])
+        assertArrayEquals(arrayOf<Any?>(true, false, false, true), first.values[2])
+        assertArrayEquals(arrayOf<Any?>("idle", "run, fast", "say \"hi\"", "idle"), first.values[3])
+        assertArrayEquals(arrayOf<Any?>(0.0, 0.25, 2.0, 0.75), first.values[4])
+        val second = reader.readBlock()!!
+        assertArrayEquals(arrayOf<Any?>(4L, 5L, 6L, 7L), second.values[4])
+        val third = reader.readBlock()!!
+        assertArrayEquals(arrayOf<Any?>("8", "true"), third.values[4])
+        // dictionary entries from earlier blocks are reused
+        assertArrayEquals(arrayOf<Any?>("say \"hi\"", "idle"), third.values[3])
+        reader.close()
+    }
+}
@@ -33,7 +33,7 @@ class DataCartonTest : GroupedData {
             }
 
             override fun accept(p0: CartonComponentRenderer) {
-                outputBuilder.append(p0).append("\n")
+                p0.appendTo(outputBuilder).append("\n")
             }
 
         })
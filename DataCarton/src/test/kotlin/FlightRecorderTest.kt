@@ -0,0 +1,49 @@
+import datacarton.CartonComponentRenderer
+import datacarton.DataBlock
+import datacarton.DataLine
+import datacarton.RenderOrder
+import datacarton.processors.FlightRecorderPublicationProcessor
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+import java.io.File
+import java.util.function.Supplier
+
+class FlightRecorderTest {
+    @Test
+    fun recordsEveryRowOfAFullRing() {
+        val directory = "flightRecorderTest${System.nanoTime()}"
+        val rows = 2048
+        var value = 0
+        val renderer = CartonComponentRenderer.Builder(RenderOrder.DEFAULT_MAPPING)
+                .add(DataBlock::class.java, DataLine("x", { value.toString() }, Supplier { value }))
+                .build("group")
+        val recorder = FlightRecorderPublicationProcessor(directory, rowsPerGroup = rows)
+
+        // more updates than the ring holds, so it has wrapped
+        repeat(rows + 10) {
+            value = it
+            recorder.accept(renderer)
+        }
+        recorder.trigger("fault")
+        recorder.updatePublication()
+        assertNull(recorder.lastException)
+        assertEquals(1, recorder.recordings)
+        // far more rows than an async writer's buffer holds, written in one go
+        assertEquals(0L, recorder.droppedRows)
+        recorder.close()
+
+        val logDirectory = File(AppUtil.FIRST_FOLDER, "DataCarton/logs/$directory/group_flight")
+        val lines = logDirectory.listFiles()!!.single().readLines()
+        logDirectory.parentFile.deleteRecursively()
+        assertEquals("reason,time,x,", lines.first())
+        assertEquals(rows, lines.size - 1)
+        // the oldest 10 were overwritten
+        lines.drop(1).forEachIndexed { i, line ->
+            val columns = line.split(',')
+            assertEquals("fault", columns[0])
+            assertEquals((i + 10).toString(), columns[2])
+        }
+    }
+}
@@ -0,0 +1,86 @@
+import collections.LatencyHistogram
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class LatencyHistogramTest {
+    /**
+     * the highest value counted in the same bucket as [value], read back through the median of [value] and a much larger value
+     */
+    private fun bucketTop(value: Long): Long {
+        val histogram = LatencyHistogram()
+        histogram.record(value)
+        histogram.record(1_000_000)
+        return histogram.percentile(50.0)
+    }
+
+    @Test
+    fun bucketBoundaries() {
+        // below 2^subBucketBits every value has its own bucket
+        assertEquals(31L, bucketTop(31))
+        assertEquals(32L, bucketTop(32))
+        assertEquals(63L, bucketTop(63))
+        // past 64 buckets are two wide
+        assertEquals(65L, bucketTop(64))
+        assertEquals(65L, bucketTop(65))
+        assertEquals(67L, bucketTop(66))
+        assertEquals(0L, bucketTop(0))
+    }
+
+    @Test
+    fun exactBelowTheFirstMagnitude() {
+        val histogram = LatencyHistogram()
+        for (value in 0L until 32L) histogram.record(value)
+        assertEquals(32L, histogram.count)
+        assertEquals(15L, histogram.percentile(50.0))
+        assertEquals(0L, histogram.percentile(0.0))
+        assertEquals(31L, histogram.percentile(100.0))
+        assertEquals(31L, histogram.max)
+    }
+
+    @Test
+    fun percentilesOfAUniformDistribution() {
+        val histogram = LatencyHistogram()
+        for (value in 1L..100_000L) histogram.record(value * 1000)
+        assertEquals(100_000L, histogram.count)
+        assertEquals(100_000_000L, histogram.max)
+        for (percentile in doubleArrayOf(1.0, 25.0, 50.0, 90.0, 99.0, 99.9)) {
+            val exact = (percentile * 1000).toLong() * 1000
+            val reported = histogram.percentile(percentile)
+            // never under, and over by at most one bucket width, 1 / 32 of the value
+            assertTrue("p$percentile was $reported, expected $exact", reported >= exact)
+            assertTrue("p$percentile was $reported, expected $exact", reported <= exact + exact / 32)
+        }
+        assertEquals(histogram.max, histogram.percentile(100.0))
+    }
+
+    @Test
+    fun clampsToHighestTrackableValue() {
+        val histogram = LatencyHistogram(5, 1000)
+        histogram.record(500)
+        histogram.record(10_000)
+        histogram.record(Long.MAX_VALUE)
+        histogram.record(-5)
+        assertEquals(4L, histogram.count)
+        assertEquals(1000L, histogram.max)
+        assertEquals(1000L, histogram.percentile(100.0))
+        assertEquals(1000L, histogram.percentile(75.0))
+        // negative durations count as 0
+        assertEquals(0L, histogram.percentile(25.0))
+    }
+
+    @Test
+    fun reset() {
+        val histogram = LatencyHistogram()
+        histogram.record(123)
+        histogram.record(456_789)
+        histogram.reset()
+        assertEquals(0L, histogram.count)
+        assertEquals(0L, histogram.max)
+        assertEquals(0L, histogram.percentile(50.0))
+        histogram.record(40)
+        assertEquals(1L, histogram.count)
+        assertEquals(40L, histogram.percentile(99.0))
+        assertEquals(40L, histogram.max)
+    }
+}
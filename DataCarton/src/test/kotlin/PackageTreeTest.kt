@@ -0,0 +1,136 @@
+import datacarton.CartonComponentRenderer
+import datacarton.DataBlock
+import datacarton.DataCarton
+import datacarton.annotations.Data
+import datacarton.annotations.Pack
+import datacarton.processors.PublicationProcessor
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+import java.util.Collections
+
+class PackageTreeTest {
+    class Motor {
+        @Data
+        val power = 0.5
+    }
+
+    class SharedRobot {
+        private val motor = Motor()
+        @Pack(group = "packageTreeLeft")
+        val left = motor
+        @Pack(group = "packageTreeRight")
+        val right = motor
+    }
+
+    class HiddenFirstRobot {
+        private val motor = Motor()
+        @Pack(group = "packageTreeHidden")
+        val first = motor
+        @Pack(group = "packageTreeShown")
+        val second = motor
+    }
+
+    class Loop {
+        @Data
+        val id = 1
+        var next: Loop? = null
+        @Pack(group = "packageTreeLoop")
+        private fun next() = next
+    }
+
+    class Wide {
+        @Pack(group = "packageTreeWide0") val m0 = Motor()
+        @Pack(group = "packageTreeWide1") val m1 = Motor()
+        @Pack(group = "packageTreeWide2") val m2 = Motor()
+        @Pack(group = "packageTreeWide3") val m3 = Motor()
+    }
+
+    /**
+     * the data labels of each group published after packaging [root]
+     */
+    private fun groups(root: Any): Map<String, List<String>> {
+        val groups = Collections.synchronizedMap(HashMap<String, List<String>>())
+        DataCarton.initWithDefaultPackageProcessors(object : PublicationProcessor {
+            override fun initPublication() {}
+
+            override fun updatePublication() {}
+
+            override fun ignoreUpdate() = false
+
+            override fun accept(p0: CartonComponentRenderer) {
+                groups[p0.title] = p0.cartonComponents.filterIsInstance<DataBlock>().flatMap { it.dataLines }.mapNotNull { it?.label }
+            }
+        })
+        try {
+            DataCarton.packageData(root)
+            DataCarton.awaitUpdate()
+        }
+        finally {
+            DataCarton.sampler.stop()
+            DataCarton.shutdown()
+            DataCarton.publicationProcessors.clear()
+            DataCarton.packageProcessors.clear()
+        }
+        return groups
+    }
+
+    @Test
+    fun sharedInstanceIsPackagedUnderEachMember() {
+        val groups = groups(SharedRobot())
+        assertEquals(listOf("power"), groups["packageTreeLeft"])
+        assertEquals(listOf("power"), groups["packageTreeRight"])
+        assertEquals(0, DataCarton.skippedPackages)
+    }
+
+    @Test
+    fun hiddenGroupDoesNotConsumeTheInstance() {
+        DataCarton.configureFor("packageTreeHidden")
+        val groups = groups(HiddenFirstRobot())
+        assertEquals(listOf("power"), groups["packageTreeShown"])
+        // hidden, not skipped
+        assertEquals(0, DataCarton.skippedPackages)
+    }
+
+    @Test
+    fun cyclesStop() {
+        val root = Loop()
+        val child = Loop()
+        root.next = child
+        child.next = root
+        val groups = groups(root)
+        assertEquals(listOf("id"), groups["packageTreeLoop"])
+        // the child's reference back to the root
+        assertEquals(1, DataCarton.skippedPackages)
+    }
+
+    @Test
+    fun repackagingWhilePublishing() {
+        DataCarton.initWithDefaultPackageProcessors(object : PublicationProcessor {
+            override fun initPublication() {}
+
+            override fun updatePublication() {}
+
+            override fun ignoreUpdate() = false
+
+            override fun accept(p0: CartonComponentRenderer) {
+                // slow enough for packageData to land part way through a publication
+                Thread.sleep(0, 100_000)
+            }
+        })
+        try {
+            repeat(200) {
+                DataCarton.packageData(Wide())
+                DataCarton.update()
+            }
+            DataCarton.awaitUpdate()
+            assertNull(DataCarton.lastPublicationException)
+        }
+        finally {
+            DataCarton.sampler.stop()
+            DataCarton.shutdown()
+            DataCarton.publicationProcessors.clear()
+            DataCarton.packageProcessors.clear()
+        }
+    }
+}
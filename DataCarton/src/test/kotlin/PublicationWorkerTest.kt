@@ -0,0 +1,44 @@
+import datacarton.PublicationWorker
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class PublicationWorkerTest {
+    @Test
+    fun cleanupWaitsForAStuckPublication() {
+        val release = CountDownLatch(1)
+        val cleaned = CountDownLatch(1)
+        val events = ArrayList<String>()
+        val worker = PublicationWorker("stuck") {
+            release.await()
+            synchronized(events) { events.add("published") }
+        }
+        assertTrue(worker.request())
+        // the publication never finishes in time
+        assertFalse(worker.shutdown(50))
+
+        worker.afterPublication {
+            synchronized(events) { events.add("cleaned") }
+            cleaned.countDown()
+        }
+        assertFalse(cleaned.await(50, TimeUnit.MILLISECONDS))
+
+        release.countDown()
+        assertTrue(cleaned.await(5, TimeUnit.SECONDS))
+        assertEquals(listOf("published", "cleaned"), synchronized(events) { events.toList() })
+    }
+
+    @Test
+    fun cleanupRunsStraightAwayWhenStopped() {
+        val worker = PublicationWorker("stopped") {}
+        assertTrue(worker.request())
+        worker.awaitIdle()
+        assertTrue(worker.shutdown())
+        var cleaned = false
+        worker.afterPublication { cleaned = true }
+        assertTrue(cleaned)
+    }
+}
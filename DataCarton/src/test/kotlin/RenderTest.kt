@@ -0,0 +1,41 @@
+import datacarton.CartonComponentRenderer
+import datacarton.DataBlock
+import datacarton.DataLine
+import datacarton.RenderOrder
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.util.function.Supplier
+
+class RenderTest {
+    @Test
+    fun linesArePaddedAndReRendered() {
+        var value = 1
+        val renderer = CartonComponentRenderer.Builder(RenderOrder.DEFAULT_MAPPING)
+                .add(DataBlock::class.java, DataLine("x", { value.toString() }))
+                .add(DataBlock::class.java, DataLine("long", Supplier { "fixed" }))
+                .build("group")
+        val builder = StringBuilder()
+
+        assertEquals("group\nx    | 1\nlong | fixed\n", renderer.appendTo(builder).toString())
+        value = 2
+        builder.setLength(0)
+        assertEquals("group\nx    | 2\nlong | fixed\n", renderer.appendTo(builder).toString())
+    }
+
+    @Test
+    fun rateLimitedGroupsReuseTheirLastRender() {
+        var value = 1
+        val renderer = CartonComponentRenderer.Builder(RenderOrder.DEFAULT_MAPPING)
+                .add(DataBlock::class.java, DataLine("x", { value.toString() }))
+                .build("group")
+        renderer.publishPeriod = 1
+        // appended after other output, only this group's part is kept
+        val builder = StringBuilder("before\n")
+        renderer.appendTo(builder)
+
+        value = 2
+        renderer.due = false
+        builder.setLength(0)
+        assertEquals("group\nx | 1\n", renderer.appendTo(builder).toString())
+    }
+}
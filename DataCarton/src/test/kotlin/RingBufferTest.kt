@@ -0,0 +1,175 @@
+import collections.DoubleRingBuffer
+import collections.IntRingBuffer
+import collections.LimitedQueue
+import collections.LongRingBuffer
+import collections.TimestampedRingBuffer
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class RingBufferTest {
+    @Test
+    fun limitedQueueIteratesInOrderAfterWrapping() {
+        // the iterators used to wrap with the element count rather than the array size, so this read the wrong slots
+        val queue = LimitedQueue<Int>(3)
+        for (i in 1..5) queue.offer(i)
+        assertEquals(3, queue.size)
+        assertEquals(listOf(3, 4, 5), queue.toList())
+        val reversed = ArrayList<Int?>()
+        queue.reverseIterator().forEach { reversed.add(it) }
+        assertEquals(listOf(5, 4, 3), reversed)
+        assertEquals(3, queue[0])
+        assertEquals(5, queue[2])
+    }
+
+    @Test
+    fun limitedQueueOfferAndPollAcrossTheWrap() {
+        val queue = LimitedQueue<Int>(4)
+        var next = 0
+        var expected = 0
+        // keeps the queue part full, so the head and tail pass the end of the array many times over
+        repeat(10) {
+            queue.offer(next++)
+            queue.offer(next++)
+            queue.offer(next++)
+            assertEquals(expected++, queue.poll())
+            assertEquals(expected++, queue.poll())
+            assertEquals(expected, queue.peek())
+            assertEquals(next - expected, queue.size)
+            assertEquals((expected until next).toList(), queue.toList())
+            while (queue.size > 1) assertEquals(expected++, queue.poll())
+        }
+        assertEquals(expected, queue.poll())
+        assertNull(queue.poll())
+        assertTrue(queue.isEmpty())
+        // polling an empty queue doesn't move the head
+        queue.offer(100)
+        assertEquals(listOf(100), queue.toList())
+    }
+
+    @Test
+    fun limitedQueueIteratorRemoveAfterWrapping() {
+        val queue = LimitedQueue<Int>(4)
+        for (i in 1..6) queue.offer(i)
+        val iterator = queue.iterator()
+        while (iterator.hasNext()) {
+            if (iterator.next()!! % 2 == 0) iterator.remove()
+        }
+        assertEquals(listOf(3, 5), queue.toList())
+        val reverse = queue.reverseIterator()
+        assertEquals(5, reverse.next())
+        reverse.remove()
+        assertEquals(listOf(3), queue.toList())
+        queue.offer(7)
+        queue.offer(8)
+        assertEquals(listOf(3, 7, 8), queue.toList())
+    }
+
+    @Test
+    fun doubleRingBufferWindowAfterEviction() {
+        val buffer = DoubleRingBuffer(3)
+        buffer.offer(5.0)
+        buffer.offer(1.0)
+        buffer.offer(3.0)
+        assertTrue(buffer.isFull())
+        assertEquals(9.0, buffer.sum(), 0.0)
+        assertEquals(1.0, buffer.min(), 0.0)
+        assertEquals(5.0, buffer.max(), 0.0)
+        // evicts the 5
+        buffer.offer(2.0)
+        assertEquals(6.0, buffer.sum(), 0.0)
+        assertEquals(2.0, buffer.mean(), 1E-12)
+        assertEquals(1.0, buffer.min(), 0.0)
+        assertEquals(3.0, buffer.max(), 0.0)
+        // evicts the 1
+        buffer.offer(4.0)
+        assertEquals(9.0, buffer.sum(), 0.0)
+        assertEquals(2.0, buffer.min(), 0.0)
+        assertEquals(4.0, buffer.max(), 0.0)
+        assertEquals(2.0 / 3.0, buffer.variance(), 1E-12)
+        assertEquals(3.0, buffer.poll(), 0.0)
+        assertEquals(2.0, buffer.min(), 0.0)
+        assertEquals(4.0, buffer.max(), 0.0)
+        assertEquals(6.0, buffer.sum(), 0.0)
+    }
+
+    @Test
+    fun doubleRingBufferMatchesABruteForceWindow() {
+        val buffer = DoubleRingBuffer(7)
+        val window = ArrayDeque<Double>()
+        val random = java.util.Random(11)
+        repeat(1000) {
+            val value = random.nextDouble() * 100 - 50
+            buffer.offer(value)
+            window.addLast(value)
+            if (window.size > 7) window.removeFirst()
+            assertEquals(window.sum(), buffer.sum(), 1E-9)
+            assertEquals(window.min(), buffer.min(), 0.0)
+            assertEquals(window.max(), buffer.max(), 0.0)
+            assertEquals(window.first(), buffer.peek(), 0.0)
+            assertEquals(window.last(), buffer.peekLast(), 0.0)
+        }
+        val copy = DoubleArray(7)
+        assertEquals(7, buffer.copyInto(copy))
+        assertEquals(window.toList(), copy.toList())
+    }
+
+    @Test
+    fun longAndIntRingBuffersWindowAfterEviction() {
+        val longs = LongRingBuffer(2)
+        val ints = IntRingBuffer(2)
+        for (value in longArrayOf(9, -4, 6, 6, 1)) {
+            longs.offer(value)
+            ints.offer(value.toInt())
+        }
+        // holds 6, 1
+        assertEquals(7L, longs.sum())
+        assertEquals(1L, longs.min())
+        assertEquals(6L, longs.max())
+        assertEquals(7L, ints.sum())
+        assertEquals(1, ints.min())
+        assertEquals(6, ints.max())
+        assertEquals(6L, longs.poll())
+        assertEquals(6, ints.poll())
+        assertEquals(1L, longs.max())
+        assertEquals(1, ints.max())
+        longs.clear()
+        assertTrue(longs.isEmpty())
+        longs.offer(3)
+        assertEquals(3L, longs.sum())
+        assertEquals(3L, longs.min())
+    }
+
+    @Test
+    fun timestampedRingBuffer() {
+        val buffer = TimestampedRingBuffer(4)
+        // 2 units per second, sampled every 250ms
+        for (i in 0..5) buffer.offer(i * 250_000_000L, i * 0.5)
+        // the first two were evicted
+        assertEquals(4, buffer.size)
+        assertEquals(500_000_000L, buffer.peekTimestamp())
+        assertEquals(1_250_000_000L, buffer.peekLastTimestamp())
+        assertEquals(750_000_000L, buffer.span())
+        assertEquals(2.0, buffer.rate(), 1E-12)
+        assertEquals(750_000_000L, buffer.timestamp(1))
+        assertEquals(2.0, buffer[2], 0.0)
+        val timestamps = LongArray(4)
+        assertEquals(4, buffer.copyTimestampsInto(timestamps))
+        assertEquals(listOf(500_000_000L, 750_000_000L, 1_000_000_000L, 1_250_000_000L), timestamps.toList())
+
+        assertEquals(2, buffer.removeOlderThan(1_000_000_000L))
+        assertEquals(2, buffer.size)
+        assertEquals(2.0, buffer.min(), 0.0)
+        assertEquals(4.5, buffer.sum(), 0.0)
+        assertEquals(0, buffer.removeOlderThan(0L))
+
+        buffer.removeOlderThan(Long.MAX_VALUE)
+        assertTrue(buffer.isEmpty())
+        buffer.offer(5L, 1.0)
+        // a single sample spans no time
+        assertEquals(0.0, buffer.rate(), 0.0)
+        assertFalse(buffer.isFull())
+    }
+}
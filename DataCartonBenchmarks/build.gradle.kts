@@ -0,0 +1,30 @@
+plugins {
+	id("kotlin")
+	id("me.champeau.jmh") version "0.6.8"
+}
+
+// a jvm only build of DataCarton, for benchmarking its hot paths off robot
+// the robot controller and Core classes that DataCarton uses are replaced with the stubs in src/main/kotlin
+
+java {
+	sourceCompatibility = JavaVersion.VERSION_1_8
+	targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+kotlin {
+	sourceSets.getByName("main").kotlin.srcDir("../DataCarton/src/main/kotlin")
+	// lets the benchmarks use DataCarton's internal constructors
+	target.compilations.getByName("jmh").associateWith(target.compilations.getByName("main"))
+}
+
+jmh {
+	jmhVersion.set("1.37")
+	fork.set(1)
+	warmupIterations.set(3)
+	iterations.set(5)
+	// reports the bytes allocated per operation, alongside the time
+	profilers.add("gc")
+	resultFormat.set("JSON")
+	// run a subset with ./gradlew :DataCartonBenchmarks:jmh -Pbenchmarks=<regex>
+	if (project.hasProperty("benchmarks")) includes.add(project.property("benchmarks") as String)
+}
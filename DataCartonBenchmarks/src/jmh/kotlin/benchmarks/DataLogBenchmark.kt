@@ -0,0 +1,57 @@
+package benchmarks
+
+import log.DataLog
+import log.DataLogFormat
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import java.util.concurrent.TimeUnit
+
+/**
+ * the cost of logging a row of [columns] values, on the thread doing the logging
+ *
+ * the csv formats are written from a background thread, so this doesn't include the cost of writing them out
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class DataLogBenchmark {
+	@Param("8", "32", "128")
+	@JvmField
+	var columns = 0
+
+	@Param("CSV", "MAPPED_CSV", "COLUMNAR")
+	@JvmField
+	var format = ""
+
+	private lateinit var headings: Array<String>
+	private lateinit var log: DataLog
+	private var value = 0.0
+
+	@Setup
+	fun setup() {
+		headings = Array(columns) { "column $it" }
+		log = DataLogFormat.valueOf(format).open("benchmark", listOf("benchmarks"), 1, true)
+				.setHeadings(*headings)
+	}
+
+	@TearDown
+	fun tearDown() {
+		log.close()
+	}
+
+	@Benchmark
+	fun update() {
+		for (i in headings.indices) {
+			log.logData(headings[i], value + i)
+		}
+		value += 0.1
+		log.update()
+	}
+}
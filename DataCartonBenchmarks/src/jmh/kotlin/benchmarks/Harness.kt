@@ -0,0 +1,22 @@
+package benchmarks
+
+import datacarton.DataCarton
+import datacarton.processors.PublicationProcessor
+import dev.frozenmilk.dairy.core.wrapper.Wrapper
+
+/**
+ * runs DataCarton through the parts of an OpMode's lifecycle that the benchmarks need, without Core
+ */
+object Harness {
+	private val wrapper = Wrapper()
+
+	fun start(vararg publicationProcessors: PublicationProcessor) {
+		DataCarton.dependency.resolve(DataCarton.Attach(autoUpdate = false))
+		DataCarton.initWithDefaultPackageProcessors(*publicationProcessors)
+		DataCarton.preUserInitHook(wrapper)
+	}
+
+	fun stop() {
+		DataCarton.postUserStopHook(wrapper)
+	}
+}
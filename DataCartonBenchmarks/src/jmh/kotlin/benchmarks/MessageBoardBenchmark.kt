@@ -0,0 +1,59 @@
+package benchmarks
+
+import collections.LimitedQueue
+import datacarton.DataLine
+import datacarton.MessageBoard
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+import java.util.function.Supplier
+
+/**
+ * the cost of adding a message to a full board, and rendering it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+open class MessageBoardBenchmark {
+	@Param("5", "20", "100")
+	@JvmField
+	var length = 0
+
+	@Param("false", "true")
+	@JvmField
+	var reversed = false
+
+	private lateinit var board: MessageBoard
+	private lateinit var lines: Array<DataLine>
+	private var next = 0
+
+	@Setup
+	fun setup() {
+		board = if (reversed) MessageBoard.Reversed(LimitedQueue(length)) else MessageBoard(LimitedQueue(length))
+		lines = Array(length * 2) { DataLine("[$it] label", Supplier { "message $it" }) }
+		repeat(length) { add() }
+		board.toString()
+	}
+
+	private fun add() {
+		board.add(lines[next])
+		next = (next + 1) % lines.size
+	}
+
+	@Benchmark
+	fun addAndRender(): String {
+		add()
+		return board.toString()
+	}
+
+	@Benchmark
+	fun render(): String {
+		return board.toString()
+	}
+}
@@ -0,0 +1,65 @@
+package benchmarks
+
+import datacarton.annotations.Data
+import datacarton.annotations.Pack
+
+/**
+ * a subsystem-like object, the leaves of a tree built by [Node.tree]
+ */
+open class Node {
+	private var position = 0.0
+	private var velocity = 0.0
+	private var acceleration = 0.0
+	private var power = 0.0
+	private var target = 0
+	private var busy = false
+
+	// @Data can only be put on final fields, so the changing values are exposed through getters
+	@Data
+	private fun position() = position
+	@Data
+	private fun velocity() = velocity
+	@Data
+	private fun acceleration() = acceleration
+	@Data
+	private fun power() = power
+	@Data
+	private fun target() = target
+	@Data
+	private fun busy() = busy
+
+	/**
+	 * changes every value in the tree, as a loop of robot code would
+	 */
+	open fun step() {
+		position += velocity
+		velocity += acceleration
+		acceleration = 0.01 - acceleration
+		power = -power + 0.1
+		target++
+		busy = !busy
+	}
+
+	companion object {
+		/**
+		 * a binary tree of nodes, [depth] 0 is a single node, each level doubles the number of nodes
+		 */
+		fun tree(depth: Int): Node = if (depth > 0) Branch(depth) else Node()
+	}
+}
+
+/**
+ * a node with two children, leaves are plain [Node]s rather than branches with null children, as DataCarton can't package a null @Pack member
+ */
+class Branch(depth: Int) : Node() {
+	@Pack
+	val left = tree(depth - 1)
+	@Pack
+	val right = tree(depth - 1)
+
+	override fun step() {
+		super.step()
+		left.step()
+		right.step()
+	}
+}
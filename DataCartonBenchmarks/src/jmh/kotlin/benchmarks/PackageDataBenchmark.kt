@@ -0,0 +1,56 @@
+package benchmarks
+
+import collections.annotatedtargets.ClassMetadata
+import datacarton.DataCarton
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import java.util.concurrent.TimeUnit
+
+/**
+ * the cost of [DataCarton.packageData], which runs in init
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class PackageDataBenchmark {
+	@Param("1", "3", "5")
+	@JvmField
+	var depth = 0
+
+	private lateinit var root: Node
+
+	@Setup
+	fun setup() {
+		root = Node.tree(depth)
+		Harness.start()
+	}
+
+	@TearDown
+	fun tearDown() {
+		Harness.stop()
+	}
+
+	/**
+	 * the class metadata cache has already been filled by a previous OpMode
+	 */
+	@Benchmark
+	fun warmCache() {
+		DataCarton.packageData(root)
+	}
+
+	/**
+	 * the first OpMode since the app started
+	 */
+	@Benchmark
+	fun coldCache() {
+		ClassMetadata.clearCache()
+		DataCarton.packageData(root)
+	}
+}
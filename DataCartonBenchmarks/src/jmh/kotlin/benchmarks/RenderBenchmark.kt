@@ -0,0 +1,84 @@
+package benchmarks
+
+import datacarton.CartonComponentRenderer
+import datacarton.DataCarton
+import datacarton.processors.PublicationProcessor
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import java.util.concurrent.TimeUnit
+
+/**
+ * the cost of rendering every group once, as the telemetry outputs do each update
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class RenderBenchmark {
+	@Param("1", "3", "5")
+	@JvmField
+	var depth = 0
+
+	private lateinit var root: Node
+	private val renderers = ArrayList<CartonComponentRenderer>()
+	private val builder = StringBuilder()
+
+	@Setup
+	fun setup() {
+		root = Node.tree(depth)
+		renderers.clear()
+		Harness.start(object : PublicationProcessor {
+			override fun initPublication() {
+				renderers.clear()
+			}
+
+			override fun updatePublication() {}
+
+			override fun ignoreUpdate() = false
+
+			override fun accept(p0: CartonComponentRenderer) {
+				renderers.add(p0)
+			}
+		})
+		DataCarton.packageData(root)
+		// collects the renderers
+		DataCarton.awaitUpdate()
+		DataCarton.shutdown()
+	}
+
+	@TearDown
+	fun tearDown() {
+		Harness.stop()
+	}
+
+	private fun render(): Int {
+		builder.setLength(0)
+		for (renderer in renderers) {
+			renderer.appendTo(builder).append('\n')
+		}
+		return builder.length
+	}
+
+	/**
+	 * every value changed since the last render
+	 */
+	@Benchmark
+	fun changed(): Int {
+		root.step()
+		return render()
+	}
+
+	/**
+	 * nothing changed since the last render
+	 */
+	@Benchmark
+	fun unchanged(): Int {
+		return render()
+	}
+}
@@ -0,0 +1,16 @@
+package com.qualcomm.robotcore.util
+
+/**
+ * stub, only covers what DataCarton uses
+ */
+class ElapsedTime {
+	private var startTime = System.nanoTime()
+
+	fun reset() {
+		startTime = System.nanoTime()
+	}
+
+	fun nanoseconds(): Long = System.nanoTime() - startTime
+
+	fun milliseconds(): Double = nanoseconds() / 1E6
+}
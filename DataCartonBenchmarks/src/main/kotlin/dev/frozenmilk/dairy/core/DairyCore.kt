@@ -0,0 +1,8 @@
+package dev.frozenmilk.dairy.core
+
+/**
+ * stub
+ */
+@Retention(AnnotationRetention.RUNTIME)
+@Target(AnnotationTarget.CLASS)
+annotation class DairyCore
@@ -0,0 +1,23 @@
+package dev.frozenmilk.dairy.core
+
+import dev.frozenmilk.dairy.core.dependency.Dependency
+import dev.frozenmilk.dairy.core.wrapper.Wrapper
+
+/**
+ * stub, the hooks are never run automatically, benchmarks call the ones they need
+ */
+interface Feature {
+	val dependency: Dependency<*>
+
+	fun preUserInitHook(opMode: Wrapper) {}
+	fun postUserInitHook(opMode: Wrapper) {}
+	fun preUserInitLoopHook(opMode: Wrapper) {}
+	fun postUserInitLoopHook(opMode: Wrapper) {}
+	fun preUserStartHook(opMode: Wrapper) {}
+	fun postUserStartHook(opMode: Wrapper) {}
+	fun preUserLoopHook(opMode: Wrapper) {}
+	fun postUserLoopHook(opMode: Wrapper) {}
+	fun preUserStopHook(opMode: Wrapper) {}
+	fun postUserStopHook(opMode: Wrapper) {}
+	fun cleanup(opMode: Wrapper) {}
+}
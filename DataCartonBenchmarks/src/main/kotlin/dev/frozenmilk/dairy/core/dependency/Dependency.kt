@@ -0,0 +1,11 @@
+package dev.frozenmilk.dairy.core.dependency
+
+/**
+ * stub
+ */
+interface Dependency<T> {
+	/**
+	 * runs the resolution callbacks with [value], standing in for Core's dependency resolution
+	 */
+	fun resolve(value: T)
+}
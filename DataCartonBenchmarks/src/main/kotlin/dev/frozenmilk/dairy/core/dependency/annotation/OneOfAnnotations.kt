@@ -0,0 +1,19 @@
+package dev.frozenmilk.dairy.core.dependency.annotation
+
+import dev.frozenmilk.dairy.core.dependency.Dependency
+
+/**
+ * stub
+ */
+class OneOfAnnotations(vararg val annotations: Class<out Annotation>) : Dependency<Annotation> {
+	private val callbacks = ArrayList<(Annotation) -> Unit>()
+
+	fun onResolve(callback: (Annotation) -> Unit): OneOfAnnotations {
+		callbacks.add(callback)
+		return this
+	}
+
+	override fun resolve(value: Annotation) {
+		callbacks.forEach { it(value) }
+	}
+}
@@ -0,0 +1,6 @@
+package dev.frozenmilk.dairy.core.wrapper
+
+/**
+ * stub, stands in for the OpMode being run
+ */
+class Wrapper
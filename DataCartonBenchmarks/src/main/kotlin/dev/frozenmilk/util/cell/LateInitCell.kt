@@ -0,0 +1,26 @@
+package dev.frozenmilk.util.cell
+
+import kotlin.reflect.KProperty
+
+/**
+ * stub
+ */
+class LateInitCell<T> {
+	private var value: T? = null
+	private var initialised = false
+
+	fun get(): T {
+		check(initialised) { "LateInitCell was read before it was set" }
+		@Suppress("UNCHECKED_CAST")
+		return value as T
+	}
+
+	fun accept(value: T) {
+		this.value = value
+		initialised = true
+	}
+
+	operator fun getValue(thisRef: Any?, property: KProperty<*>): T = get()
+
+	operator fun setValue(thisRef: Any?, property: KProperty<*>, value: T) = accept(value)
+}
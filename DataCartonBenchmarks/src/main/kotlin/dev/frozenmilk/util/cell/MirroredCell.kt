@@ -0,0 +1,34 @@
+package dev.frozenmilk.util.cell
+
+import java.lang.reflect.Field
+
+/**
+ * stub, reads and writes the field [fieldName] of [parent] through reflection
+ */
+class MirroredCell<T>(private val parent: Any, fieldName: String) {
+	private val field: Field = findField(parent.javaClass, fieldName)
+
+	init {
+		field.isAccessible = true
+	}
+
+	@Suppress("UNCHECKED_CAST")
+	fun get(): T = field.get(parent) as T
+
+	fun accept(value: T) {
+		field.set(parent, value)
+	}
+
+	private fun findField(cls: Class<*>, fieldName: String): Field {
+		var current: Class<*>? = cls
+		while (current != null) {
+			try {
+				return current.getDeclaredField(fieldName)
+			}
+			catch (e: NoSuchFieldException) {
+				current = current.superclass
+			}
+		}
+		throw NoSuchFieldException(fieldName)
+	}
+}
@@ -0,0 +1,28 @@
+package org.firstinspires.ftc.robotcore.external
+
+/**
+ * stub, only covers what DataCarton's telemetry outputs use
+ */
+interface Telemetry {
+	var isAutoClear: Boolean
+	var captionValueSeparator: String
+	var itemSeparator: String
+	var msTransmissionInterval: Int
+
+	fun setDisplayFormat(displayFormat: DisplayFormat)
+	fun addLine(): Line
+	fun removeLine(line: Line): Boolean
+	fun clearAll()
+	fun update(): Boolean
+
+	enum class DisplayFormat {
+		CLASSIC,
+		MONOSPACE,
+		HTML,
+	}
+
+	open class Line {
+		@JvmField
+		var lineCaption = ""
+	}
+}
@@ -0,0 +1,47 @@
+package org.firstinspires.ftc.robotcore.internal.opmode
+
+import com.qualcomm.robotcore.util.ElapsedTime
+import org.firstinspires.ftc.robotcore.external.Telemetry
+
+/**
+ * stub, holds its lines, and counts transmissions rather than sending them anywhere
+ */
+class TelemetryImpl : Telemetry {
+	override var isAutoClear = true
+	override var captionValueSeparator = " : "
+	override var itemSeparator = " | "
+	override var msTransmissionInterval = 250
+	var displayFormat = Telemetry.DisplayFormat.CLASSIC
+		private set
+	val lines = ArrayList<Telemetry.Line>()
+	var transmissions = 0L
+		private set
+
+	@Suppress("unused") // read by DataCarton through reflection
+	private val transmissionTimer = ElapsedTime()
+
+	override fun setDisplayFormat(displayFormat: Telemetry.DisplayFormat) {
+		this.displayFormat = displayFormat
+	}
+
+	override fun addLine(): Telemetry.Line {
+		val line = Telemetry.Line()
+		lines.add(line)
+		return line
+	}
+
+	override fun removeLine(line: Telemetry.Line): Boolean {
+		return lines.remove(line)
+	}
+
+	override fun clearAll() {
+		lines.clear()
+	}
+
+	override fun update(): Boolean {
+		transmissions++
+		transmissionTimer.reset()
+		if (isAutoClear) lines.clear()
+		return true
+	}
+}
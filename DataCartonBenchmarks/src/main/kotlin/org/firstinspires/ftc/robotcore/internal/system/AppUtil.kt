@@ -0,0 +1,11 @@
+package org.firstinspires.ftc.robotcore.internal.system
+
+import java.io.File
+
+/**
+ * stub, logs are written under the temp directory instead of the robot controller's storage
+ */
+object AppUtil {
+	@JvmField
+	val FIRST_FOLDER = File(System.getProperty("java.io.tmpdir"), "FIRST")
+}
@@ -0,0 +1,32 @@
+plugins {
+	id("kotlin")
+	id("maven-publish")
+}
+
+// compile time only, generates the ClassBindings DataCarton uses instead of reflection
+// add with kapt(project(":DataCartonProcessor")), which covers kotlin and java sources, or annotationProcessor for modules that are only java
+
+java {
+	sourceCompatibility = JavaVersion.VERSION_1_8
+	targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+publishing {
+	publications {
+		register<MavenPublication>("release") {
+			groupId = "dev.frozenmilk.dairy"
+			artifactId = "DataCartonProcessor"
+			version = "v0.0.0"
+
+			afterEvaluate {
+				from(components["java"])
+			}
+		}
+	}
+	repositories {
+		maven {
+			name = "DataCartonProcessor"
+			url = uri("${project.buildDir}/release")
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package datacarton.binding
+
+import javax.annotation.processing.AbstractProcessor
+import javax.annotation.processing.RoundEnvironment
+import javax.annotation.processing.SupportedAnnotationTypes
+import javax.lang.model.SourceVersion
+import javax.lang.model.element.Element
+import javax.lang.model.element.ElementKind
+import javax.lang.model.element.ExecutableElement
+import javax.lang.model.element.Modifier
+import javax.lang.model.element.NestingKind
+import javax.lang.model.element.TypeElement
+import javax.lang.model.element.VariableElement
+import javax.lang.model.type.TypeKind
+import javax.tools.Diagnostic
+
+/**
+ * generates a `collections.annotatedtargets.ClassBinding` for each class with members annotated with DataCarton's annotations
+ *
+ * the binding lists the annotated members, and reads the ones that aren't private directly, so DataCarton doesn't need to scan the class, or use reflection to read them
+ */
+@SupportedAnnotationTypes(
+		"datacarton.annotations.Data",
+		"datacarton.annotations.Pack",
+		"datacarton.annotations.Import",
+		"datacarton.annotations.Export",
+		"datacarton.annotations.Sample",
+)
+class BindingProcessor : AbstractProcessor() {
+	private val generated = HashSet<String>()
+	private var warnedMissingBinding = false
+
+	/**
+	 * read from ClassBinding.SUFFIX on the classpath being compiled against, so the names always match what DataCarton looks for
+	 */
+	private val suffix: String? by lazy {
+		processingEnv.elementUtils.getTypeElement(CLASS_BINDING)
+				?.enclosedElements
+				?.filterIsInstance<VariableElement>()
+				?.firstOrNull { it.simpleName.contentEquals("SUFFIX") }
+				?.constantValue as? String
+	}
+
+	override fun getSupportedSourceVersion(): SourceVersion = SourceVersion.latestSupported()
+
+	override fun process(annotations: MutableSet<out TypeElement>, roundEnv: RoundEnvironment): Boolean {
+		val members = LinkedHashMap<TypeElement, MutableSet<Element>>()
+		for (annotation in annotations) {
+			for (element in roundEnv.getElementsAnnotatedWith(annotation)) {
+				val type = element.enclosingElement as? TypeElement ?: continue
+				members.getOrPut(type) { LinkedHashSet() }.add(element)
+			}
+		}
+		members.forEach { (type, elements) -> write(type, elements) }
+		// other processors may also be interested in these annotations
+		return false
+	}
+
+	/**
+	 * if generated code in the same package can refer to [type]
+	 */
+	private fun canReference(type: TypeElement): Boolean {
+		var current: Element? = type
+		while (current is TypeElement) {
+			if (current.modifiers.contains(Modifier.PRIVATE)) return false
+			if (current.nestingKind == NestingKind.LOCAL || current.nestingKind == NestingKind.ANONYMOUS) return false
+			current = current.enclosingElement
+		}
+		return true
+	}
+
+	private fun write(type: TypeElement, elements: Set<Element>) {
+		if (type.kind != ElementKind.CLASS && type.kind != ElementKind.ENUM) return
+		if (!canReference(type)) return
+		val suffix = suffix
+		if (suffix == null) {
+			if (!warnedMissingBinding) processingEnv.messager.printMessage(Diagnostic.Kind.WARNING, "DataCarton's ClassBinding isn't on the classpath, no bindings will be generated", type)
+			warnedMissingBinding = true
+			return
+		}
+
+		val packageName = processingEnv.elementUtils.getPackageOf(type).qualifiedName.toString()
+		val binaryName = processingEnv.elementUtils.getBinaryName(type).toString()
+		val bindingName = (if (packageName.isEmpty()) binaryName else binaryName.substring(packageName.length + 1)) + suffix
+		val qualifiedBindingName = if (packageName.isEmpty()) bindingName else "$packageName.$bindingName"
+		if (!generated.add(qualifiedBindingName)) return
+
+		val typeName = type.qualifiedName.toString()
+		val fields = elements.filter { it.kind == ElementKind.FIELD }
+		val methods = elements
+				.filterIsInstance<ExecutableElement>()
+				.filter { it.kind == ElementKind.METHOD && it.parameters.isEmpty() && it.returnType.kind != TypeKind.VOID }
+
+		val source = StringBuilder()
+		source.append("// generated by the DataCarton annotation processor, do not edit\n")
+		if (packageName.isNotEmpty()) source.append("package ").append(packageName).append(";\n")
+		source.append("\n")
+		source.append("public final class ").append(bindingName).append(" extends ").append(CLASS_BINDING).append(" {\n")
+		source.append("\tpublic ").append(bindingName).append("() {\n")
+		source.append("\t\tsuper(\n")
+		source.append("\t\t\t\tnew String[] {").append(fields.joinToString { "\"${it.simpleName}\"" }).append("},\n")
+		source.append("\t\t\t\tnew boolean[] {").append(fields.joinToString { isBound(it).toString() }).append("},\n")
+		source.append("\t\t\t\tnew String[] {").append(methods.joinToString { "\"${it.simpleName}\"" }).append("},\n")
+		source.append("\t\t\t\tnew boolean[] {").append(methods.joinToString { isBound(it).toString() }).append("}\n")
+		source.append("\t\t);\n")
+		source.append("\t}\n")
+		writeGetter(source, "getField", "field", fields) { "${receiver(typeName, it)}.${it.simpleName}" }
+		writeGetter(source, "getMethod", "method", methods) { "${receiver(typeName, it)}.${it.simpleName}()" }
+		writeDoubleGetter(source, methods) { "${receiver(typeName, it)}.${it.simpleName}()" }
+		source.append("}\n")
+
+		try {
+			processingEnv.filer.createSourceFile(qualifiedBindingName, type).openWriter().use { it.write(source.toString()) }
+		}
+		catch (e: Exception) {
+			processingEnv.messager.printMessage(Diagnostic.Kind.WARNING, "DataCarton could not generate a binding for $typeName, it will use reflection instead: $e", type)
+		}
+	}
+
+	private fun isBound(element: Element) = !element.modifiers.contains(Modifier.PRIVATE)
+
+	private fun receiver(typeName: String, element: Element) =
+			if (element.modifiers.contains(Modifier.STATIC)) typeName else "(($typeName) instance)"
+
+	private fun writeGetter(source: StringBuilder, name: String, kind: String, elements: List<Element>, access: (Element) -> String) {
+		source.append("\n")
+		source.append("\t@Override\n")
+		source.append("\tpublic Object ").append(name).append("(int index, Object instance) {\n")
+		source.append("\t\tswitch (index) {\n")
+		elements.forEachIndexed { index, element ->
+			if (!isBound(element)) return@forEachIndexed
+			source.append("\t\t\tcase ").append(index).append(": return ").append(access(element)).append(";\n")
+		}
+		source.append("\t\t\tdefault: throw new IllegalArgumentException(\"").append(kind).append(" \" + index + \" is not bound\");\n")
+		source.append("\t\t}\n")
+		source.append("\t}\n")
+	}
+
+	/**
+	 * overrides getMethodDouble for the bound methods that return numbers or booleans, so they are read without boxing
+	 */
+	private fun writeDoubleGetter(source: StringBuilder, methods: List<ExecutableElement>, access: (Element) -> String) {
+		val primitive = methods.withIndex().filter { (_, method) -> isBound(method) && method.returnType.kind in DOUBLE_CONVERTIBLE }
+		if (primitive.isEmpty()) return
+		source.append("\n")
+		source.append("\t@Override\n")
+		source.append("\tpublic double getMethodDouble(int index, Object instance) {\n")
+		source.append("\t\tswitch (index) {\n")
+		primitive.forEach { (index, method) ->
+			source.append("\t\t\tcase ").append(index).append(": return ")
+			if (method.returnType.kind == TypeKind.BOOLEAN) source.append(access(method)).append(" ? 1.0 : 0.0")
+			else source.append(access(method))
+			source.append(";\n")
+		}
+		source.append("\t\t\tdefault: return super.getMethodDouble(index, instance);\n")
+		source.append("\t\t}\n")
+		source.append("\t}\n")
+	}
+
+	private companion object {
+		const val CLASS_BINDING = "collections.annotatedtargets.ClassBinding"
+		// chars aren't numbers to DataCarton, so they go through the boxed path and read as NaN
+		val DOUBLE_CONVERTIBLE = setOf(TypeKind.DOUBLE, TypeKind.FLOAT, TypeKind.LONG, TypeKind.INT, TypeKind.SHORT, TypeKind.BYTE, TypeKind.BOOLEAN)
+	}
+}
@@ -58,6 +58,7 @@ dependencies {
 
 	compileOnly(project(":Core"))
 	testImplementation(project(":Core"))
+	compileOnly(project(":DataCarton"))
 
 	compileOnly("org.firstinspires.ftc:RobotCore:9.0.1")
 	compileOnly("org.firstinspires.ftc:Hardware:9.0.1")
@@ -0,0 +1,202 @@
+//! reads the ring buffer that the JVM writes outgoing messages into, so the router can get robot
+//! state without a websocket round trip through NanoWSD, see
+//! `dev.frozenmilk.dairy.milkman.bridge.SharedRing` for the layout
+//!
+//! the JVM writes records, then calls `publish` once per batch, which is the only JNI crossing
+
+use std::collections::HashMap;
+use std::sync::atomic::{AtomicU64, Ordering};
+use std::sync::{Arc, Mutex};
+
+use once_cell::sync::{Lazy, OnceCell};
+use serde::Deserialize;
+use tokio::sync::{broadcast, Notify};
+
+// these must match SharedRing.kt
+const MAGIC: i32 = 0x4D4B_5242;
+const MAGIC_OFFSET: usize = 0;
+const CAPACITY_OFFSET: usize = 4;
+const HEAD_OFFSET: usize = 8;
+const TAIL_OFFSET: usize = 16;
+const DATA_OFFSET: usize = 64;
+const WRAP: u32 = u32::MAX;
+
+struct Ring {
+    base: *mut u8,
+    capacity: usize,
+}
+
+// the buffer is kept alive by the JVM for the rest of the process, and only the reader touches the
+// tail and data once attached
+unsafe impl Send for Ring {}
+unsafe impl Sync for Ring {}
+
+impl Ring {
+    fn head(&self) -> &AtomicU64 {
+        unsafe { &*(self.base.add(HEAD_OFFSET) as *const AtomicU64) }
+    }
+
+    fn tail(&self) -> &AtomicU64 {
+        unsafe { &*(self.base.add(TAIL_OFFSET) as *const AtomicU64) }
+    }
+
+    unsafe fn read_u32(&self, offset: usize) -> u32 {
+        (self.base.add(DATA_OFFSET + offset) as *const u32).read()
+    }
+
+    unsafe fn slice(&self, offset: usize, len: usize) -> &[u8] {
+        std::slice::from_raw_parts(self.base.add(DATA_OFFSET + offset), len)
+    }
+}
+
+/// a message read from the ring, shared by every client that forwards it
+#[derive(Debug)]
+pub struct Frame {
+    /// the `type` of the message
+    pub msg_type: &'static str,
+    pub json: Box<str>,
+    rendered: OnceCell<Option<String>>,
+}
+
+impl Frame {
+    /// runs `render` the first time this is called, every later call, from any client, gets the
+    /// same result
+    pub fn rendered(&self, render: impl FnOnce(&Frame) -> Option<String>) -> Option<&str> {
+        self.rendered.get_or_init(|| render(self)).as_deref()
+    }
+}
+
+// the types the JVM writes to the ring, see MessageType.kt
+const TYPES: [&str; 3] = ["ROBOT_STATE", "RETURN_OP_MODE_META_DATA", "TELEMETRY_FRAME"];
+// the types kept as snapshots for new clients
+const SNAPSHOTS: [&str; 2] = ["ROBOT_STATE", "RETURN_OP_MODE_META_DATA"];
+
+// only the type is deserialised, everything else is skipped without being built into a Value
+#[derive(Deserialize)]
+struct Typed<'a> {
+    #[serde(rename = "type")]
+    msg_type: &'a str,
+}
+
+static RING: OnceCell<Ring> = OnceCell::new();
+static NOTIFY: Lazy<Notify> = Lazy::new(Notify::new);
+static FRAMES: Lazy<broadcast::Sender<Arc<Frame>>> = Lazy::new(|| broadcast::channel(256).0);
+// the latest of each snapshot message, so a new client gets the current state straight away, like
+// it would from NanoWSD's onOpen
+static LATEST: Lazy<Mutex<HashMap<&'static str, Arc<Frame>>>> =
+    Lazy::new(|| Mutex::new(HashMap::new()));
+
+/// attaches the ring, returns false if the buffer doesn't look like one written by SharedRing
+///
+/// # Safety
+/// `base` must point to `len` bytes that stay valid for the rest of the process
+pub unsafe fn attach(base: *mut u8, len: usize) -> bool {
+    if base.is_null() || len < DATA_OFFSET || base as usize % 8 != 0 {
+        return false;
+    }
+    if (base.add(MAGIC_OFFSET) as *const i32).read() != MAGIC {
+        return false;
+    }
+    let capacity = (base.add(CAPACITY_OFFSET) as *const i32).read();
+    if capacity <= 0 || capacity % 4 != 0 || DATA_OFFSET + capacity as usize > len {
+        return false;
+    }
+    RING.set(Ring {
+        base,
+        capacity: capacity as usize,
+    })
+    .is_ok()
+}
+
+pub fn attached() -> bool {
+    RING.get().is_some()
+}
+
+/// called by the JVM once it has written records up to `head`
+pub fn publish(head: u64) {
+    if let Some(ring) = RING.get() {
+        // the records were written by this same thread before the JNI call, so the release store
+        // orders them before the new head
+        ring.head().store(head, Ordering::Release);
+        NOTIFY.notify_one();
+    }
+}
+
+pub async fn run_reader() {
+    loop {
+        NOTIFY.notified().await;
+        drain();
+    }
+}
+
+fn align(len: usize) -> usize {
+    (len + 3) & !3
+}
+
+fn drain() {
+    let Some(ring) = RING.get() else {
+        return;
+    };
+    let head = ring.head().load(Ordering::Acquire);
+    let mut tail = ring.tail().load(Ordering::Relaxed);
+    let mut latest = LATEST.lock().unwrap();
+    while tail < head {
+        let offset = (tail % ring.capacity as u64) as usize;
+        let len = unsafe { ring.read_u32(offset) };
+        if len == WRAP {
+            tail += (ring.capacity - offset) as u64;
+            continue;
+        }
+        let len = len as usize;
+        tail += align(4 + len) as u64;
+        // read in place, the only copy made is the one that outlives the record
+        let Some(frame) = read_frame(unsafe { ring.slice(offset + 4, len) }) else {
+            continue;
+        };
+        let frame = Arc::new(frame);
+        if SNAPSHOTS.contains(&frame.msg_type) {
+            latest.insert(frame.msg_type, frame.clone());
+        }
+        // no receivers is fine, the latest snapshots are still kept
+        FRAMES.send(frame).ok();
+    }
+    // hands the space back to the JVM
+    ring.tail().store(tail, Ordering::Release);
+}
+
+/// None if the record isn't utf-8 json with a known type, which the JVM never writes
+fn read_frame(bytes: &[u8]) -> Option<Frame> {
+    let json = std::str::from_utf8(bytes).ok()?;
+    let typed: Typed = serde_json::from_str(json).ok()?;
+    let msg_type = *TYPES.iter().find(|it| **it == typed.msg_type)?;
+    Some(Frame {
+        msg_type,
+        json: json.into(),
+        rendered: OnceCell::new(),
+    })
+}
+
+/// the latest snapshots, and a receiver for everything after them, or None if no ring is attached
+pub fn subscribe() -> Option<(Vec<Arc<Frame>>, broadcast::Receiver<Arc<Frame>>)> {
+    if !attached() {
+        return None;
+    }
+    // held so that nothing is drained between reading the snapshots and subscribing
+    let latest = LATEST.lock().unwrap();
+    Some((latest.values().cloned().collect(), FRAMES.subscribe()))
+}
+
+/// waits for the next message from the ring, forever if there is no ring
+pub async fn recv(receiver: &mut Option<broadcast::Receiver<Arc<Frame>>>) -> Arc<Frame> {
+    let Some(receiver) = receiver else {
+        return std::future::pending().await;
+    };
+    loop {
+        match receiver.recv().await {
+            Ok(frame) => return frame,
+            // a client that falls behind skips to the newest messages
+            Err(broadcast::error::RecvError::Lagged(_)) => continue,
+            Err(broadcast::error::RecvError::Closed) => return std::future::pending().await,
+        }
+    }
+}
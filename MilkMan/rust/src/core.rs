@@ -14,6 +14,8 @@ use serde_json::Value;
 use tokio::signal::{self};
 use tokio_tungstenite::tungstenite::{self};
 
+use crate::bridge;
+
 mod robot_controller;
 
 pub static mut ALIVE: bool = false;
@@ -24,6 +26,9 @@ pub static mut ALIVE: bool = false;
 //}
 
 pub async fn start_router<'local>(port: i32) {
+    // reads the shared ring, if the JVM attaches one
+    tokio::spawn(bridge::run_reader());
+
     //let (broadcast_channel, _) = broadcast::channel(100);
 
     //let app_state = Arc::new(AppState { broadcast_channel });
@@ -101,13 +106,26 @@ async fn internal_websocket_handler(
 }
 
 const INTERNAL_WS_ADDR: &str = "ws://192.168.43.1:8110";
+// when the shared ring is attached, broadcasts come from it, so the socket is only used for
+// commands and their responses
+const INTERNAL_WS_ADDR_BRIDGED: &str = "ws://192.168.43.1:8110/?broadcasts=false";
 async fn internal_websocket(stream: WebSocket) {
     // split so that we can do both sending and recieving at the same time
     println!("opening connection");
     let (mut client_sender, mut client_receiver) = stream.split();
 
+    let (initial, mut bridge_receiver) = match bridge::subscribe() {
+        Some((initial, receiver)) => (initial, Some(receiver)),
+        None => (Vec::new(), None),
+    };
+    let addr = if bridge_receiver.is_some() {
+        INTERNAL_WS_ADDR_BRIDGED
+    } else {
+        INTERNAL_WS_ADDR
+    };
+
     let (mut robot_sender, mut robot_receiver) =
-        match tokio_tungstenite::connect_async(INTERNAL_WS_ADDR).await {
+        match tokio_tungstenite::connect_async(addr).await {
             Ok((stream, _)) => stream.split(),
             Err(_) => {
                 // exits the whole thing on err connecting to the robot
@@ -148,19 +166,29 @@ async fn internal_websocket(stream: WebSocket) {
     });
 
     let mut forward_from_robot = tokio::spawn(async move {
+        for frame in initial {
+            if let ControlFlow::Continue(Some(msg)) = process_robot_frame(&frame) {
+                client_sender.send(msg).await.ok();
+            }
+        }
         loop {
-            let Some(msg) = robot_receiver.next().await else {
-                continue;
-            };
-            println!("recieved message from robot {msg:?}");
-            let msg = match msg {
-                Ok(msg) => msg,
-                Err(err) => {
-                    println!("err from robot {err:?}");
-                    break;
-                }
+            let processed_result = tokio::select! {
+                msg = robot_receiver.next() => {
+                    let Some(msg) = msg else {
+                        continue;
+                    };
+                    println!("recieved message from robot {msg:?}");
+                    let msg = match msg {
+                        Ok(msg) => msg,
+                        Err(err) => {
+                            println!("err from robot {err:?}");
+                            break;
+                        }
+                    };
+                    process_robot_message(msg)
+                },
+                frame = bridge::recv(&mut bridge_receiver) => process_robot_frame(&frame),
             };
-            let processed_result = process_robot_message(msg);
             println!("processed message from robot {processed_result:?}");
             match processed_result {
                 ControlFlow::Continue(opt) => {
@@ -192,24 +220,7 @@ async fn internal_websocket(stream: WebSocket) {
 fn process_robot_message(msg: tungstenite::Message) -> ControlFlow<(), Option<ws::Message>> {
     println!("processing message {msg:?}");
     match msg {
-        tungstenite::Message::Text(t) => {
-            let Ok(json) = serde_json::from_str::<Value>(t.as_str()) else {
-                return ControlFlow::Continue(None);
-            };
-            let Value::String(msg_type) = &json["type"] else {
-                return ControlFlow::Continue(None);
-            };
-            println!("responding to message of type {msg_type}");
-            let markup = match msg_type.as_str() {
-                "ROBOT_STATE" => robot_controller::convert_robot_state(json),
-                "RETURN_OP_MODE_META_DATA" => robot_controller::convert_op_mode_meta_data(json),
-                _ => {
-                    return ControlFlow::Continue(None);
-                }
-            };
-            println!("{markup:?}");
-            return ControlFlow::Continue(Some(ws::Message::Text(markup.into_string())));
-        }
+        tungstenite::Message::Text(t) => process_robot_json(t.as_str()),
         tungstenite::Message::Close(_) => {
             return ControlFlow::Break(());
         }
@@ -217,6 +228,45 @@ fn process_robot_message(msg: tungstenite::Message) -> ControlFlow<(), Option<ws
     }
 }
 
+fn process_robot_json(text: &str) -> ControlFlow<(), Option<ws::Message>> {
+    let Ok(json) = serde_json::from_str::<Value>(text) else {
+        return ControlFlow::Continue(None);
+    };
+    let Value::String(msg_type) = &json["type"] else {
+        return ControlFlow::Continue(None);
+    };
+    let msg_type = msg_type.clone();
+    ControlFlow::Continue(render(&msg_type, json).map(ws::Message::Text))
+}
+
+/// frames from the ring already know their type, so ones that aren't rendered are skipped without
+/// being parsed, and the rest are parsed and rendered once, for every client
+fn process_robot_frame(frame: &bridge::Frame) -> ControlFlow<(), Option<ws::Message>> {
+    if !RENDERED.contains(&frame.msg_type) {
+        return ControlFlow::Continue(None);
+    }
+    let html = frame.rendered(|frame| {
+        let json = serde_json::from_str::<Value>(&frame.json).ok()?;
+        render(frame.msg_type, json)
+    });
+    ControlFlow::Continue(html.map(|html| ws::Message::Text(html.to_owned())))
+}
+
+const RENDERED: [&str; 2] = ["ROBOT_STATE", "RETURN_OP_MODE_META_DATA"];
+
+fn render(msg_type: &str, json: Value) -> Option<String> {
+    println!("responding to message of type {msg_type}");
+    let markup = match msg_type {
+        "ROBOT_STATE" => robot_controller::convert_robot_state(json),
+        "RETURN_OP_MODE_META_DATA" => robot_controller::convert_op_mode_meta_data(json),
+        _ => {
+            return None;
+        }
+    };
+    println!("{markup:?}");
+    Some(markup.into_string())
+}
+
 async fn fallback_404() -> impl IntoResponse {
     (StatusCode::NOT_FOUND, "404 - not found")
 }
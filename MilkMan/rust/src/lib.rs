@@ -1,9 +1,10 @@
 use jni::{
-    objects::JClass,
-    sys::{jboolean, jint},
+    objects::{JByteBuffer, JClass, JObject},
+    sys::{jboolean, jint, jlong},
     JNIEnv,
 };
 
+mod bridge;
 mod core;
 
 #[no_mangle]
@@ -29,3 +30,28 @@ extern "system" fn Java_dev_frozenmilk_dairy_milkman_MilkMan_isAlive<'local>(
 ) -> jboolean {
     unsafe { core::ALIVE.into() }
 }
+
+#[no_mangle]
+extern "system" fn Java_dev_frozenmilk_dairy_milkman_bridge_NativeRingPublisher_attachBuffer<'local>(
+    env: JNIEnv<'local>,
+    _this: JObject<'local>,
+    buffer: JByteBuffer<'local>,
+) -> jboolean {
+    let (Ok(base), Ok(len)) = (
+        env.get_direct_buffer_address(&buffer),
+        env.get_direct_buffer_capacity(&buffer),
+    ) else {
+        return false.into();
+    };
+    // SharedRing holds on to the buffer for the rest of the process
+    unsafe { bridge::attach(base, len).into() }
+}
+
+#[no_mangle]
+extern "system" fn Java_dev_frozenmilk_dairy_milkman_bridge_NativeRingPublisher_publishHead<'local>(
+    _env: JNIEnv<'local>,
+    _this: JObject<'local>,
+    head: jlong,
+) {
+    bridge::publish(head as u64);
+}
@@ -1,3 +1,6 @@
+// the ring is only ever attached through JNI, so the binary reads nothing from it
+#[allow(dead_code)]
+mod bridge;
 mod core;
 
 #[tokio::main]
@@ -6,9 +6,13 @@ import com.qualcomm.robotcore.eventloop.opmode.OpModeManagerImpl
 import com.qualcomm.robotcore.util.RobotLog
 import com.qualcomm.robotcore.util.WebHandlerManager
 import dev.frozenmilk.dairy.core.FeatureRegistrar
+import dev.frozenmilk.dairy.milkman.bridge.NativeRingPublisher
+import dev.frozenmilk.dairy.milkman.bridge.SharedRing
 import dev.frozenmilk.dairy.milkman.messages.incoming.GetOpModeMetaData
 import dev.frozenmilk.dairy.milkman.messages.outgoing.ReturnOpModeMetaData
 import dev.frozenmilk.dairy.milkman.notifier.Notifier
+import dev.frozenmilk.dairy.milkman.notifier.VersionedState
+import dev.frozenmilk.dairy.milkman.telemetry.TelemetryChannel
 import dev.frozenmilk.util.cell.LateInitCell
 import org.firstinspires.ftc.ftccommon.external.OnCreateEventLoop
 import org.firstinspires.ftc.ftccommon.external.WebHandlerRegistrar
@@ -38,6 +42,11 @@ object MilkMan {
 
 	private var loaded = false
 
+	/**
+	 * live DataCarton telemetry is sent through this, see [dev.frozenmilk.dairy.milkman.telemetry.MilkManPublicationProcessor]
+	 */
+	val telemetryChannel = TelemetryChannel()
+
 	/**
 	 * registers this instance against the web handler, automatically called by the FtcEventLoop, should not be called by the user
 	 */
@@ -57,7 +66,9 @@ object MilkMan {
 		// anyway, this really isn't a concern if it's high, as htmx ws and tokio_tungstenite are much better technologies
 		// and don't behave like children
 		// anyway, this shouldn't complain
-		MilkManWSD().start(Int.MAX_VALUE)
+		val sharedRing = SharedRing(1 shl 16, NativeRingPublisher)
+		RobotLog.vv("MilkMan", "shared ring attached: ${sharedRing.attached}")
+		MilkManWSD(telemetryChannel = telemetryChannel, sharedRing = sharedRing.takeIf { it.attached }).start(Int.MAX_VALUE)
 
 		RobotLog.vv("MilkMan", "...inited robot communication server")
 
@@ -101,6 +112,11 @@ object MilkMan {
 //		}
 //	}
 //
+	/**
+	 * [registeredOpModes], versioned, refreshed by [MilkManWSD] between op modes
+	 */
+	val opModeRegistry = VersionedState { registeredOpModes() }
+
 	fun registeredOpModes(): List<OpModeMeta> {
 //		RobotLog.vv("MilkMan", "requested registeredOpModes")
 		val registeredOpModes = RegisteredOpModes.getInstance()
@@ -6,49 +6,322 @@ import dev.frozenmilk.dairy.core.FeatureRegistrar
 import dev.frozenmilk.dairy.core.OpModeWrapper
 import dev.frozenmilk.dairy.core.dependencyresolution.dependencies.Dependency
 import dev.frozenmilk.dairy.core.dependencyresolution.dependencyset.DependencySet
+import dev.frozenmilk.dairy.milkman.bridge.SharedRing
+import dev.frozenmilk.dairy.milkman.messages.BinaryMessageDecoder
+import dev.frozenmilk.dairy.milkman.messages.BinaryWriter
+import dev.frozenmilk.dairy.milkman.messages.Encoding
 import dev.frozenmilk.dairy.milkman.messages.Message
 import dev.frozenmilk.dairy.milkman.messages.gson
 import dev.frozenmilk.dairy.milkman.messages.outgoing.OutgoingMessage
 import dev.frozenmilk.dairy.milkman.messages.outgoing.ReturnOpModeMetaData
 import dev.frozenmilk.dairy.milkman.messages.outgoing.RobotState
 import dev.frozenmilk.dairy.milkman.notifier.Notifier
+import dev.frozenmilk.dairy.milkman.notifier.VersionedState
+import dev.frozenmilk.dairy.milkman.telemetry.TelemetryChannel
+import dev.frozenmilk.dairy.milkman.telemetry.TelemetrySubscription
 import fi.iki.elonen.NanoHTTPD
 import fi.iki.elonen.NanoWSD
 import java.io.IOException
+import java.io.InputStream
+import java.net.Socket
+import java.util.concurrent.CopyOnWriteArraySet
+import java.util.concurrent.atomic.AtomicLong
+import java.util.function.Predicate
 
-class MilkManWSD(port: Int = 8110) : NanoWSD(port), Feature {
-	override fun openWebSocket(handshake: IHTTPSession): WebSocket = MilkManWebSocket(this, handshake)
+/**
+ * messages are fanned out to sockets by a single I/O thread, through a bounded [SendQueue] per socket, so sending from the hooks costs the same however many clients are connected
+ *
+ * a socket is evicted if its queue fills up, or a single send takes longer than [slowSendMillis], encoding, sending and evicting all happen on the I/O thread, so callers only ever queue
+ *
+ * java sockets have no write timeout, so a watchdog closes the connection under a send that has been stuck for longer than [slowSendMillis], which fails the send and frees the I/O thread
+ *
+ * broadcasts are also written to [sharedRing] if there is one, for the native router to read
+ */
+class MilkManWSD(port: Int = 8110, val telemetryChannel: TelemetryChannel = TelemetryChannel(), val sendQueueCapacity: Int = 64, val slowSendMillis: Long = 1000, val sharedRing: SharedRing? = null) : NanoWSD(port), Feature {
+	// the connection of the client being handled on this thread, websockets are opened on the same thread as their connection is handled
+	private val connection = ThreadLocal<Socket>()
+
+	override fun createClientHandler(finalAccept: Socket, inputStream: InputStream): ClientHandler = object : ClientHandler(inputStream, finalAccept) {
+		override fun run() {
+			connection.set(finalAccept)
+			try {
+				super.run()
+			}
+			finally {
+				connection.remove()
+			}
+		}
+	}
+
+	override fun openWebSocket(handshake: IHTTPSession): WebSocket = MilkManWebSocket(this, handshake, connection.get())
+	private val robotState = VersionedState { FeatureRegistrar.opModeState }
 	private val notifiers  = listOf(
-			Notifier(this, { FeatureRegistrar.opModeState }, { RobotState() }),
-			Notifier(this, { MilkMan.registeredOpModes() }, { ReturnOpModeMetaData() })
+			Notifier(this, robotState) { RobotState() },
+			Notifier(this, MilkMan.opModeRegistry) { ReturnOpModeMetaData.current() }
 	)
 
-	private val sockets = mutableSetOf<MilkManWebSocket>()
+	private val all = Predicate<MilkManWebSocket> { it.receivesBroadcasts }
+
+	// also read by the I/O thread
+	private val sockets = CopyOnWriteArraySet<MilkManWebSocket>()
+
+	val hasTelemetrySubscribers: Boolean
+		get() = sharedRing?.streamTelemetry == true || sockets.any { it.telemetrySubscription.active }
+
+	private val binaryWriter = BinaryWriter()
 
-	fun sendToAllSockets(message: OutgoingMessage) {
-		sockets.forEach { it.send(message) }
+	/**
+	 * encodes [message] in the binary framing, reusing the same buffers each time
+	 */
+	fun encodeBinary(message: Message): ByteArray = synchronized(binaryWriter) {
+		message.writeBinary(binaryWriter.reset())
+		binaryWriter.toByteArray()
+	}
+
+	private class Broadcast(val message: OutgoingMessage, val filter: Predicate<MilkManWebSocket>)
+
+	private val ioLock = Object()
+	// messages waiting for the I/O thread to fan them out
+	private val outbox = ArrayDeque<Broadcast>()
+	private var woken = false
+	private var ioThread: Thread? = null
+	private var watchdogThread: Thread? = null
+	private val slowSendNanos = slowSendMillis * 1_000_000L
+
+	private val evictionCount = AtomicLong()
+
+	/**
+	 * the number of sockets closed for falling behind
+	 */
+	val evictions: Long
+		get() = evictionCount.get()
+
+	fun sendToAllSockets(message: OutgoingMessage) = sendToSockets(message, all)
+
+	/**
+	 * queues [message] to be sent to the sockets that match [filter], never blocks on the network
+	 *
+	 * a message with a [OutgoingMessage.coalesceKey] replaces one with the same key that has not been fanned out yet
+	 */
+	fun sendToSockets(message: OutgoingMessage, filter: Predicate<MilkManWebSocket>) {
+		synchronized(ioLock) {
+			val key = message.coalesceKey
+			if (key != null) outbox.removeAll { it.message.coalesceKey == key && it.filter === filter }
+			outbox.addLast(Broadcast(message, filter))
+			woken = true
+			ioLock.notifyAll()
+		}
+	}
+
+	/**
+	 * queues [message] to be sent to just [socket], it is encoded by the I/O thread
+	 */
+	fun sendToSocket(socket: MilkManWebSocket, message: OutgoingMessage) = sendToSockets(message) { it === socket }
+
+	/**
+	 * wakes the I/O thread, to pick up waiting telemetry frames
+	 */
+	fun wake() {
+		synchronized(ioLock) {
+			woken = true
+			ioLock.notifyAll()
+		}
+	}
+
+	private fun offerTo(socket: MilkManWebSocket, message: OutgoingMessage, payload: Any) {
+		if (!socket.sendQueue.offer(message.type, message.coalesceKey, payload)) evict(socket, "send queue full")
+	}
+
+	/**
+	 * encodes [message] at most once for each encoding in use, the ring shares the json
+	 */
+	private fun fanOut(message: OutgoingMessage, filter: Predicate<MilkManWebSocket>, toRing: Boolean) {
+		var json: String? = null
+		var binary: ByteArray? = null
+		if (toRing && sharedRing != null) sharedRing.write(message.toJson().also { json = it })
+		sockets.forEach { socket ->
+			if (!filter.test(socket)) return@forEach
+			val payload: Any = when (socket.encoding) {
+				Encoding.JSON -> json ?: message.toJson().also { json = it }
+				Encoding.BINARY -> binary ?: encodeBinary(message).also { binary = it }
+			}
+			offerTo(socket, message, payload)
+		}
+	}
+
+	/**
+	 * runs [block], a write to [socket], where the watchdog can see how long it has been going for
+	 *
+	 * @return how long [block] took, in nanoseconds
+	 */
+	private inline fun watched(socket: MilkManWebSocket, block: () -> Unit): Long {
+		val start = System.nanoTime()
+		socket.sendingSince = start
+		try {
+			block()
+		}
+		finally {
+			socket.sendingSince = 0L
+		}
+		return System.nanoTime() - start
+	}
+
+	private fun flush(socket: MilkManWebSocket) {
+		while (true) {
+			val entry = socket.sendQueue.poll() ?: return
+			val took = try {
+				watched(socket) {
+					when (val payload = entry.payload) {
+						is String -> socket.send(payload)
+						is ByteArray -> socket.send(payload)
+					}
+				}
+			}
+			catch (e: IOException) {
+				evict(socket, "failed to send ${entry.type}: $e")
+				return
+			}
+			if (took > slowSendNanos) {
+				evict(socket, "sending ${entry.type} took longer than ${slowSendMillis}ms")
+				return
+			}
+		}
+	}
+
+	/**
+	 * only called from the I/O thread, the close frame is watched like any other send
+	 */
+	private fun evict(socket: MilkManWebSocket, reason: String) {
+		if (!sockets.remove(socket)) return
+		evictionCount.incrementAndGet()
+		RobotLog.dd("MilkMan", "evicting socket, $reason")
+		socket.sendQueue.clear()
+		try {
+			watched(socket) { socket.close(NanoWSD.WebSocketFrame.CloseCode.GoingAway, reason, false) }
+		}
+		catch (e: IOException) {
+			RobotLog.dd("MilkMan", "failed to close evicted socket: $e")
+		}
+	}
+
+	/**
+	 * closes the connection of any socket that has been stuck in a single send for longer than [slowSendMillis], which makes the send throw on the I/O thread
+	 */
+	private fun runWatchdog() {
+		val period = (slowSendMillis / 2).coerceAtLeast(1)
+		while (true) {
+			try {
+				Thread.sleep(period)
+			}
+			catch (e: InterruptedException) {
+				return
+			}
+			val now = System.nanoTime()
+			// the I/O thread removes the socket once its send fails, so only the raw sockets it is still writing to are checked
+			sockets.forEach { socket ->
+				val since = socket.sendingSince
+				if (since != 0L && now - since > slowSendNanos) socket.abort()
+			}
+		}
+	}
+
+	private fun runIO() {
+		val batch = ArrayList<Broadcast>()
+		while (true) {
+			synchronized(ioLock) {
+				while (!woken) {
+					try {
+						ioLock.wait()
+					}
+					catch (e: InterruptedException) {
+						return
+					}
+				}
+				woken = false
+				batch.addAll(outbox)
+				outbox.clear()
+			}
+			try {
+				batch.forEach { fanOut(it.message, it.filter, it.filter === all) }
+				val telemetryToRing = sharedRing?.streamTelemetry == true
+				telemetryChannel.drain { frame -> fanOut(frame, { it.telemetrySubscription.includes(frame.group) }, telemetryToRing) }
+				// one publish for the whole batch
+				sharedRing?.publish()
+				sockets.forEach { flush(it) }
+			}
+			catch (e: Exception) {
+				RobotLog.dd("MilkMan", "I/O thread exception: $e")
+			}
+			finally {
+				batch.clear()
+			}
+		}
 	}
 
 	fun registerSocket(socket: MilkManWebSocket) {
 		sockets.add(socket)
+		startIO()
+	}
+
+	private fun startIO() {
+		synchronized(ioLock) {
+			if (ioThread == null) {
+				ioThread = Thread(::runIO, "MilkMan I/O").apply {
+					isDaemon = true
+					start()
+				}
+				watchdogThread = Thread(::runWatchdog, "MilkMan watchdog").apply {
+					isDaemon = true
+					start()
+				}
+			}
+		}
 	}
 
 	fun deregisterSocket(socket: MilkManWebSocket) {
 		sockets.remove(socket)
+		socket.sendQueue.clear()
+	}
+
+	override fun stop() {
+		super.stop()
+		synchronized(ioLock) {
+			ioThread?.interrupt()
+			ioThread = null
+			watchdogThread?.interrupt()
+			watchdogThread = null
+		}
 	}
 
 	override val dependencies: Set<Dependency<*, *>> = DependencySet(this)
 			.yields()
 
 	init {
+		telemetryChannel.server = this
+		// broadcasts go to the ring even with no sockets connected
+		if (sharedRing?.attached == true) startIO()
 		FeatureRegistrar.registerFeature(this)
 	}
 
+	/**
+	 * the op mode state is cheap to read, so is refreshed every hook, everything else just compares versions
+	 */
 	private fun pollNotifiers() {
+		robotState.refresh()
 		notifiers.forEach { it.poll() }
 	}
 
-	override fun preUserInitHook(opMode: OpModeWrapper) = pollNotifiers()
+	/**
+	 * the registry only changes while no op mode is running, e.g. when OnBotJava rebuilds
+	 */
+	private fun refreshOpModeRegistry() {
+		MilkMan.opModeRegistry.refresh()
+	}
+
+	override fun preUserInitHook(opMode: OpModeWrapper) {
+		refreshOpModeRegistry()
+		pollNotifiers()
+	}
 
 	override fun postUserInitHook(opMode: OpModeWrapper) = pollNotifiers()
 
@@ -66,23 +339,69 @@ class MilkManWSD(port: Int = 8110) : NanoWSD(port), Feature {
 
 	override fun preUserStopHook(opMode: OpModeWrapper) = pollNotifiers()
 
-	override fun postUserStopHook(opMode: OpModeWrapper) = pollNotifiers()
+	override fun postUserStopHook(opMode: OpModeWrapper) {
+		refreshOpModeRegistry()
+		pollNotifiers()
+	}
 }
 
-class MilkManWebSocket(val milkManWSD: MilkManWSD, handshakeRequest: NanoHTTPD.IHTTPSession) : NanoWSD.WebSocket(handshakeRequest) {
+/**
+ * @param connection the underlying connection, closed by the watchdog if a send to it stalls, null if it wasn't known
+ */
+class MilkManWebSocket(val milkManWSD: MilkManWSD, handshakeRequest: NanoHTTPD.IHTTPSession, private val connection: Socket? = null) : NanoWSD.WebSocket(handshakeRequest) {
+	/**
+	 * negotiated from the `encoding` query parameter of the handshake, see [Encoding]
+	 */
+	val encoding = Encoding.fromHandshake(handshakeRequest)
+
+	val telemetrySubscription = TelemetrySubscription()
+
+	/**
+	 * false if the `broadcasts` query parameter of the handshake was false, used by the native router, which gets broadcasts from the [SharedRing] instead
+	 */
+	val receivesBroadcasts = handshakeRequest.parameters["broadcasts"]?.firstOrNull() != "false"
+
+	val sendQueue = SendQueue(milkManWSD.sendQueueCapacity)
+
+	/**
+	 * when the I/O thread started its current write to this, or 0 if it isn't writing to it
+	 */
+	@Volatile
+	internal var sendingSince = 0L
+
+	/**
+	 * closes the underlying connection without writing to it, unblocking a stalled send
+	 */
+	internal fun abort() {
+		if (connection == null) {
+			RobotLog.dd("MilkMan", "can't abort a stalled send, the connection is unknown")
+			return
+		}
+		RobotLog.dd("MilkMan", "aborting a send that has stalled for longer than ${milkManWSD.slowSendMillis}ms")
+		try {
+			connection.close()
+		}
+		catch (e: IOException) {
+			RobotLog.dd("MilkMan", "failed to abort socket: $e")
+		}
+	}
+
+	/**
+	 * queues [message] to be sent by the I/O thread
+	 */
 	fun send(message: OutgoingMessage) {
 		RobotLog.vv("MilkMan", "sending message of type ${message.type}")
-		val json = message.toJson()
-		RobotLog.vv("MilkMan", "json contents: $json")
-		send(json)
+		milkManWSD.sendToSocket(this, message)
 	}
 	override fun onOpen() {
 		milkManWSD.registerSocket(this)
 
-		RobotLog.vv("MilkMan", "opening socket")
+		RobotLog.vv("MilkMan", "opening socket, encoding: $encoding")
 
+		// the native router gets its initial snapshots from the ring
+		if (!receivesBroadcasts) return
 		send(RobotState())
-		send(ReturnOpModeMetaData())
+		send(ReturnOpModeMetaData.current())
 	}
 
 	override fun onClose(code: NanoWSD.WebSocketFrame.CloseCode, reason: String, initiatedByRemote: Boolean) {
@@ -91,7 +410,14 @@ class MilkManWebSocket(val milkManWSD: MilkManWSD, handshakeRequest: NanoHTTPD.I
 	}
 
 	override fun onMessage(message: NanoWSD.WebSocketFrame) {
-		val incoming = gson.fromJson(message.textPayload, Message::class.java)
+		val incoming = try {
+			if (message.opCode == NanoWSD.WebSocketFrame.OpCode.Binary) BinaryMessageDecoder.decode(message.binaryPayload)
+			else gson.fromJson(message.textPayload, Message::class.java)
+		}
+		catch (e: Exception) {
+			RobotLog.dd("MilkMan", "failed to read message: $e")
+			null
+		} ?: return
 		RobotLog.vv("MilkMan", "received message of type ${incoming.type}")
 		incoming.process(this)
 	}
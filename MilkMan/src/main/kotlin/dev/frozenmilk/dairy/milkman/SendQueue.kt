@@ -0,0 +1,55 @@
+package dev.frozenmilk.dairy.milkman
+
+import dev.frozenmilk.dairy.milkman.messages.MessageType
+
+/**
+ * a bounded queue of encoded messages waiting to be sent to one socket
+ *
+ * a message with a coalesce key replaces the payload of a waiting message with the same key, keeping its place in the queue, so a client that falls behind only gets the latest of each
+ */
+class SendQueue(val capacity: Int) {
+	class Entry(val type: MessageType, val key: Any?, payload: Any) {
+		/**
+		 * a String for text frames, or a ByteArray for binary frames
+		 */
+		var payload = payload
+			internal set
+	}
+
+	private val entries = ArrayDeque<Entry>(capacity)
+
+	/**
+	 * the number of messages replaced by a newer one before they were sent
+	 */
+	@Volatile
+	var coalesced = 0L
+		private set
+
+	val size: Int
+		@Synchronized get() = entries.size
+
+	/**
+	 * @return false if the queue is full, and [payload] could not be coalesced into a waiting message
+	 */
+	@Synchronized
+	fun offer(type: MessageType, key: Any?, payload: Any): Boolean {
+		if (key != null) {
+			for (entry in entries) {
+				if (entry.key == key) {
+					entry.payload = payload
+					coalesced++
+					return true
+				}
+			}
+		}
+		if (entries.size == capacity) return false
+		entries.addLast(Entry(type, key, payload))
+		return true
+	}
+
+	@Synchronized
+	fun poll(): Entry? = entries.removeFirstOrNull()
+
+	@Synchronized
+	fun clear() = entries.clear()
+}
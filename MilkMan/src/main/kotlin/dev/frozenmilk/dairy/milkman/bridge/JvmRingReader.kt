@@ -0,0 +1,56 @@
+package dev.frozenmilk.dairy.milkman.bridge
+
+import java.nio.ByteBuffer
+import java.util.function.Consumer
+
+/**
+ * reads a [SharedRing] from within the jvm, for when the native library isn't available, such as in tests
+ */
+class JvmRingReader : RingPublisher {
+	private var buffer: ByteBuffer? = null
+	private var capacity = 0
+
+	@Synchronized
+	override fun attach(buffer: ByteBuffer): Boolean {
+		if (this.buffer != null) return false
+		this.buffer = buffer
+		capacity = buffer.getInt(SharedRing.CAPACITY_OFFSET)
+		return true
+	}
+
+	@Synchronized
+	override fun publish(buffer: ByteBuffer, head: Long) {
+		buffer.putLong(SharedRing.HEAD_OFFSET, head)
+	}
+
+	@Synchronized
+	override fun tail(buffer: ByteBuffer): Long = buffer.getLong(SharedRing.TAIL_OFFSET)
+
+	/**
+	 * passes each published record to [consumer], then frees their space
+	 *
+	 * @return the number of records read
+	 */
+	@Synchronized
+	fun drain(consumer: Consumer<ByteArray>): Int {
+		val buffer = buffer ?: return 0
+		val head = buffer.getLong(SharedRing.HEAD_OFFSET)
+		var tail = buffer.getLong(SharedRing.TAIL_OFFSET)
+		var read = 0
+		while (tail < head) {
+			val offset = (tail % capacity).toInt()
+			val length = buffer.getInt(SharedRing.DATA_OFFSET + offset)
+			if (length == SharedRing.WRAP) {
+				tail += capacity - offset
+				continue
+			}
+			val bytes = ByteArray(length)
+			for (i in 0 until length) bytes[i] = buffer.get(SharedRing.DATA_OFFSET + offset + 4 + i)
+			consumer.accept(bytes)
+			tail += SharedRing.align(4 + length)
+			read++
+		}
+		buffer.putLong(SharedRing.TAIL_OFFSET, tail)
+		return read
+	}
+}
@@ -0,0 +1,22 @@
+package dev.frozenmilk.dairy.milkman.bridge
+
+import java.nio.ByteBuffer
+
+/**
+ * hands the ring to the native router, which reads it from its own task, [publish] is the only JNI call, made once per batch
+ *
+ * requires the milkman library, which is loaded by [dev.frozenmilk.dairy.milkman.MilkMan]
+ */
+object NativeRingPublisher : RingPublisher {
+	private external fun attachBuffer(buffer: ByteBuffer): Boolean
+	private external fun publishHead(head: Long)
+
+	override fun attach(buffer: ByteBuffer) = attachBuffer(buffer)
+
+	override fun publish(buffer: ByteBuffer, head: Long) = publishHead(head)
+
+	/**
+	 * the tail is stored natively with release ordering, a stale read here only makes the ring look fuller than it is
+	 */
+	override fun tail(buffer: ByteBuffer) = super.tail(buffer)
+}
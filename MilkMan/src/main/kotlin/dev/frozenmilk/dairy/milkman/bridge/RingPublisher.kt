@@ -0,0 +1,23 @@
+package dev.frozenmilk.dairy.milkman.bridge
+
+import java.nio.ByteBuffer
+
+/**
+ * the reading side of a [SharedRing]
+ */
+interface RingPublisher {
+	/**
+	 * @return false if the buffer can't be read by this
+	 */
+	fun attach(buffer: ByteBuffer): Boolean
+
+	/**
+	 * makes the records up to [head] visible to the reader
+	 */
+	fun publish(buffer: ByteBuffer, head: Long)
+
+	/**
+	 * the number of bytes the reader has finished with, which the writer may overwrite
+	 */
+	fun tail(buffer: ByteBuffer): Long = buffer.getLong(SharedRing.TAIL_OFFSET)
+}
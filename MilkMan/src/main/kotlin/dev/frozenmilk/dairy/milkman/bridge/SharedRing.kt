@@ -0,0 +1,109 @@
+package dev.frozenmilk.dairy.milkman.bridge
+
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+
+/**
+ * a single producer, single consumer ring of messages in a direct [ByteBuffer], shared with the native router so it can read outgoing messages without a JNI call or a websocket per message
+ *
+ * the header is the [MAGIC] and capacity as ints, then the head (bytes written) and tail (bytes read) as longs, all in native byte order, records start at [DATA_OFFSET]
+ *
+ * records are a length int followed by that many bytes of utf-8 json, padded to 4 bytes, a length of [WRAP] means the rest of the ring is unused and the next record starts back at the beginning
+ *
+ * records are written by [write] from one thread, and only made visible to the reader by [publish], once per batch, through [publisher]
+ *
+ * @param capacity the number of bytes of records the ring can hold, rounded down to a multiple of 4
+ */
+class SharedRing(capacity: Int, private val publisher: RingPublisher) {
+	val capacity = capacity and 3.inv()
+
+	init {
+		require(this.capacity > 0) { "capacity must be at least 4 bytes, was $capacity" }
+	}
+
+	/**
+	 * held for the rest of the process, as the reader may keep the address of its memory
+	 */
+	val buffer: ByteBuffer = ByteBuffer.allocateDirect(DATA_OFFSET + this.capacity).order(ByteOrder.nativeOrder())
+	private var head = 0L
+	private var published = 0L
+
+	/**
+	 * if telemetry frames are written to the ring, as well as robot state and op mode metadata
+	 */
+	@Volatile
+	var streamTelemetry = false
+
+	/**
+	 * the number of records that didn't fit, as the reader had fallen too far behind
+	 */
+	@Volatile
+	var droppedRecords = 0L
+		private set
+
+	/**
+	 * false if [publisher] refused the buffer, in which case nothing is written
+	 */
+	val attached: Boolean
+
+	init {
+		buffer.putInt(MAGIC_OFFSET, MAGIC)
+		buffer.putInt(CAPACITY_OFFSET, this.capacity)
+		buffer.putLong(HEAD_OFFSET, 0L)
+		buffer.putLong(TAIL_OFFSET, 0L)
+		attached = publisher.attach(buffer)
+	}
+
+	/**
+	 * writes [bytes] as a record, not visible to the reader until [publish]
+	 *
+	 * @return false if the record was dropped
+	 */
+	fun write(bytes: ByteArray): Boolean {
+		if (!attached) return false
+		val recordSize = align(4 + bytes.size)
+		var offset = (head % capacity).toInt()
+		val toEnd = capacity - offset
+		val needed = if (toEnd < recordSize) toEnd + recordSize else recordSize
+		if (recordSize > capacity || head + needed - publisher.tail(buffer) > capacity) {
+			droppedRecords++
+			return false
+		}
+		if (toEnd < recordSize) {
+			buffer.putInt(DATA_OFFSET + offset, WRAP)
+			head += toEnd
+			offset = 0
+		}
+		buffer.putInt(DATA_OFFSET + offset, bytes.size)
+		// absolute bulk puts aren't available at this api level, so the position is moved instead
+		buffer.position(DATA_OFFSET + offset + 4)
+		buffer.put(bytes)
+		head += recordSize
+		return true
+	}
+
+	fun write(json: String) = write(json.toByteArray(Charsets.UTF_8))
+
+	/**
+	 * makes everything written since the last publish visible to the reader
+	 */
+	fun publish() {
+		if (head == published) return
+		publisher.publish(buffer, head)
+		published = head
+	}
+
+	companion object {
+		const val MAGIC = 0x4D4B5242
+		const val MAGIC_OFFSET = 0
+		const val CAPACITY_OFFSET = 4
+		const val HEAD_OFFSET = 8
+		const val TAIL_OFFSET = 16
+		// the rest of the first 64 bytes are left free, so the positions don't share a cache line with records
+		const val DATA_OFFSET = 64
+		const val WRAP = -1
+
+		@JvmStatic
+		fun align(size: Int) = (size + 3) and 3.inv()
+	}
+}
@@ -0,0 +1,58 @@
+package dev.frozenmilk.dairy.milkman.messages
+
+import java.io.IOException
+import java.nio.ByteBuffer
+
+/**
+ * decodes the binary framing written by [BinaryWriter]
+ */
+class BinaryReader(bytes: ByteArray) {
+	private val buffer = ByteBuffer.wrap(bytes)
+
+	val remaining: Int
+		get() = buffer.remaining()
+
+	fun readVarLong(): Long {
+		var result = 0L
+		var shift = 0
+		while (shift < 64) {
+			if (!buffer.hasRemaining()) throw IOException("message ended part way through a varint")
+			val byte = buffer.get().toInt()
+			result = result or ((byte and 0x7F).toLong() shl shift)
+			if (byte and 0x80 == 0) return result
+			shift += 7
+		}
+		throw IOException("malformed varint")
+	}
+
+	fun readVarInt(): Int = readVarLong().toInt()
+
+	fun readSignedVarLong(): Long {
+		val value = readVarLong()
+		return (value ushr 1) xor -(value and 1L)
+	}
+
+	private fun require(bytes: Int) {
+		if (buffer.remaining() < bytes) throw IOException("message ended part way through a field")
+	}
+
+	fun readBoolean(): Boolean {
+		require(1)
+		return buffer.get().toInt() != 0
+	}
+
+	fun readDouble(): Double {
+		require(8)
+		return buffer.getDouble()
+	}
+
+	fun readString(): String {
+		val length = readVarInt()
+		if (length < 0 || length > buffer.remaining()) throw IOException("string length $length is longer than the rest of the message")
+		val string = String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, Charsets.UTF_8)
+		buffer.position(buffer.position() + length)
+		return string
+	}
+
+	fun readType(): MessageType? = MessageType.fromTag(readVarInt())
+}
@@ -0,0 +1,88 @@
+package dev.frozenmilk.dairy.milkman.messages
+
+import java.nio.ByteBuffer
+import java.nio.CharBuffer
+import java.nio.charset.CodingErrorAction
+
+/**
+ * encodes messages in the binary framing, reusing the same buffers for every message
+ *
+ * a frame is the [MessageType.tag] as a varint, followed by the fields of the message, in the order the message writes them:
+ * integers are varints (zigzag encoded if signed), strings are a varint byte length followed by utf-8, booleans are a byte, doubles are 8 bytes big endian
+ */
+class BinaryWriter(initialCapacity: Int = 256) {
+	private var buffer = ByteBuffer.allocate(initialCapacity)
+	private val encoder = Charsets.UTF_8.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE)
+	private var stringBuffer = ByteBuffer.allocate(64)
+
+	val size: Int
+		get() = buffer.position()
+
+	fun reset(): BinaryWriter {
+		buffer.clear()
+		return this
+	}
+
+	private fun ensureCapacity(bytes: Int) {
+		if (buffer.remaining() >= bytes) return
+		val grown = ByteBuffer.allocate((buffer.capacity() * 2).coerceAtLeast(buffer.position() + bytes))
+		buffer.flip()
+		grown.put(buffer)
+		buffer = grown
+	}
+
+	fun writeVarLong(value: Long): BinaryWriter {
+		ensureCapacity(10)
+		var remaining = value
+		while (remaining and 0x7FL.inv() != 0L) {
+			buffer.put(((remaining and 0x7FL) or 0x80L).toByte())
+			remaining = remaining ushr 7
+		}
+		buffer.put(remaining.toByte())
+		return this
+	}
+
+	fun writeVarInt(value: Int): BinaryWriter = writeVarLong(value.toLong() and 0xFFFFFFFFL)
+
+	fun writeSignedVarLong(value: Long): BinaryWriter = writeVarLong((value shl 1) xor (value shr 63))
+
+	fun writeBoolean(value: Boolean): BinaryWriter {
+		ensureCapacity(1)
+		buffer.put(if (value) 1 else 0)
+		return this
+	}
+
+	fun writeDouble(value: Double): BinaryWriter {
+		ensureCapacity(8)
+		buffer.putDouble(value)
+		return this
+	}
+
+	fun writeString(value: String): BinaryWriter {
+		// the length has to be known before the bytes are written, so the string is encoded into a reused scratch buffer first
+		val maxBytes = (value.length * encoder.maxBytesPerChar()).toInt() + 1
+		if (stringBuffer.capacity() < maxBytes) stringBuffer = ByteBuffer.allocate(maxBytes)
+		stringBuffer.clear()
+		encoder.reset()
+		encoder.encode(CharBuffer.wrap(value), stringBuffer, true)
+		encoder.flush(stringBuffer)
+		stringBuffer.flip()
+		writeVarInt(stringBuffer.remaining())
+		ensureCapacity(stringBuffer.remaining())
+		buffer.put(stringBuffer)
+		return this
+	}
+
+	fun writeType(type: MessageType): BinaryWriter = writeVarInt(type.tag)
+
+	/**
+	 * copies out the bytes written since the last [reset]
+	 */
+	fun toByteArray(): ByteArray {
+		val bytes = ByteArray(buffer.position())
+		System.arraycopy(buffer.array(), 0, bytes, 0, bytes.size)
+		return bytes
+	}
+}
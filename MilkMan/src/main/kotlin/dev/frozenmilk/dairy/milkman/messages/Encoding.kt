@@ -0,0 +1,31 @@
+package dev.frozenmilk.dairy.milkman.messages
+
+import fi.iki.elonen.NanoHTTPD
+
+/**
+ * the encoding a socket sends and receives messages in, picked when the socket is opened
+ */
+enum class Encoding {
+	/**
+	 * text frames holding gson json, the default
+	 */
+	JSON,
+
+	/**
+	 * binary frames, see [BinaryWriter] for the layout
+	 */
+	BINARY;
+
+	companion object {
+		/**
+		 * the query parameter a client sets when connecting, e.g. `ws://192.168.43.1:8110/?encoding=binary`
+		 */
+		const val PARAMETER = "encoding"
+
+		@JvmStatic
+		fun fromHandshake(handshake: NanoHTTPD.IHTTPSession): Encoding {
+			val requested = handshake.parameters[PARAMETER]?.firstOrNull() ?: return JSON
+			return values().firstOrNull { it.name.equals(requested, ignoreCase = true) } ?: JSON
+		}
+	}
+}
@@ -5,15 +5,18 @@ import com.google.gson.JsonDeserializationContext
 import com.google.gson.JsonDeserializer
 import com.google.gson.JsonElement
 import com.google.gson.JsonObject
-import com.google.gson.JsonParseException
 import com.google.gson.reflect.TypeToken
 import dev.frozenmilk.dairy.milkman.MilkManWebSocket
 import dev.frozenmilk.dairy.milkman.messages.incoming.GetOpModeMetaData
 import dev.frozenmilk.dairy.milkman.messages.incoming.InitOpMode
 import dev.frozenmilk.dairy.milkman.messages.incoming.StartOpMode
 import dev.frozenmilk.dairy.milkman.messages.incoming.StopOpMode
+import dev.frozenmilk.dairy.milkman.messages.incoming.SubscribeTelemetry
+import dev.frozenmilk.dairy.milkman.messages.incoming.UnsubscribeTelemetry
 import dev.frozenmilk.dairy.milkman.messages.outgoing.ReturnOpModeMetaData
 import dev.frozenmilk.dairy.milkman.messages.outgoing.RobotState
+import dev.frozenmilk.dairy.milkman.messages.outgoing.TelemetryFrame
+import java.io.IOException
 import java.lang.reflect.Type
 
 
@@ -24,30 +27,83 @@ val gson = GsonBuilder()
 interface Message {
 	val type: MessageType
 	fun toJson(): String = gson.toJson(this)
+
+	/**
+	 * writes this message in the binary framing, messages that carry data must override this to write it after the tag
+	 */
+	fun writeBinary(writer: BinaryWriter) {
+		writer.writeType(type)
+	}
+
 	fun process(milkManWebSocket: MilkManWebSocket)
 }
 
-enum class MessageType(val message: Class<out Message>) {
-	GET_OP_MODE_META_DATA(GetOpModeMetaData::class.java),
-	INIT_OP_MODE(InitOpMode::class.java),
-	START_OP_MODE(StartOpMode::class.java),
-	STOP_OP_MODE(StopOpMode::class.java),
+/**
+ * [tag] identifies the type in the binary framing, tags are part of the protocol, so must never be changed or reused, new types take the next free tag
+ */
+enum class MessageType(val tag: Int, val message: Class<out Message>) {
+	GET_OP_MODE_META_DATA(0, GetOpModeMetaData::class.java),
+	INIT_OP_MODE(1, InitOpMode::class.java),
+	START_OP_MODE(2, StartOpMode::class.java),
+	STOP_OP_MODE(3, StopOpMode::class.java),
+
+	RETURN_OP_MODE_META_DATA(4, ReturnOpModeMetaData::class.java),
+	ROBOT_STATE(5, RobotState::class.java),
 
-	RETURN_OP_MODE_META_DATA(ReturnOpModeMetaData::class.java),
-	ROBOT_STATE(RobotState::class.java),
+	SUBSCRIBE_TELEMETRY(6, SubscribeTelemetry::class.java),
+	UNSUBSCRIBE_TELEMETRY(7, UnsubscribeTelemetry::class.java),
+	TELEMETRY_FRAME(8, TelemetryFrame::class.java),
+	;
+
+	companion object {
+		private val tags = arrayOfNulls<MessageType>(values().maxOf { it.tag } + 1).also { tags ->
+			values().forEach {
+				check(tags[it.tag] == null) { "${it.name} reuses the tag of ${tags[it.tag]}" }
+				tags[it.tag] = it
+			}
+		}
+
+		@JvmStatic
+		fun fromTag(tag: Int): MessageType? = tags.getOrNull(tag)
+	}
 }
 
 object MessageDeserializer : JsonDeserializer<Message> {
 	override fun deserialize(jsonElement: JsonElement, type: Type, jsonDeserializationContext: JsonDeserializationContext): Message? {
 		val messageObj: JsonObject = jsonElement.asJsonObject
-		val messageType : MessageType? = try {
-			jsonDeserializationContext.deserialize(messageObj["type"], MessageType::class.java)
-		}
-		catch (e: JsonParseException) { null }
-		if (messageType?.message == null) {
-			return null
+		// the tag is read straight off the object, rather than running it back through the context
+		val typeName = messageObj["type"]?.takeIf { it.isJsonPrimitive }?.asString ?: return null
+		val messageType = try {
+			MessageType.valueOf(typeName)
 		}
+		catch (e: IllegalArgumentException) { return null }
 		val msgType = TypeToken.get(messageType.message).type
 		return jsonDeserializationContext.deserialize(jsonElement, msgType)
 	}
+}
+
+/**
+ * reads incoming messages sent in the binary framing, outgoing messages are never received, so are not decoded
+ */
+object BinaryMessageDecoder {
+	@Throws(IOException::class)
+	fun decode(bytes: ByteArray): Message? {
+		val reader = BinaryReader(bytes)
+		return when (reader.readType()) {
+			MessageType.GET_OP_MODE_META_DATA -> GetOpModeMetaData()
+			MessageType.INIT_OP_MODE -> InitOpMode(reader.readString())
+			MessageType.START_OP_MODE -> StartOpMode()
+			MessageType.STOP_OP_MODE -> StopOpMode()
+			MessageType.SUBSCRIBE_TELEMETRY -> SubscribeTelemetry(reader.readStrings())
+			MessageType.UNSUBSCRIBE_TELEMETRY -> UnsubscribeTelemetry(reader.readStrings())
+			else -> null
+		}
+	}
+
+	private fun BinaryReader.readStrings(): List<String> {
+		val count = readVarInt()
+		// every string takes at least a byte, so this stops a bad count from allocating a huge list
+		if (count < 0 || count > remaining) throw IOException("string count $count is longer than the rest of the message")
+		return List(count) { readString() }
+	}
 }
\ No newline at end of file
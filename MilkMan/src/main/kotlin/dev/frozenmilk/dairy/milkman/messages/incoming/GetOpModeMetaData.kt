@@ -7,9 +7,14 @@ import org.firstinspires.ftc.robotcore.internal.opmode.OpModeMeta
 
 class GetOpModeMetaData : IncomingMessage() {
 	override val type: MessageType = MessageType.GET_OP_MODE_META_DATA
-	override fun generateResponse() = ReturnOpModeMetaData()
+	override fun generateResponse() = ReturnOpModeMetaData.current()
 
-	override fun internalProcess() {}
+	/**
+	 * an explicit request is the one time the registry is checked outside of an op mode, as OnBotJava may have rebuilt it
+	 */
+	override fun internalProcess() {
+		MilkMan.opModeRegistry.refresh()
+	}
 
 }
 
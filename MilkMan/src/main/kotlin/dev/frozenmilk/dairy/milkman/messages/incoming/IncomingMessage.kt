@@ -7,8 +7,13 @@ import dev.frozenmilk.dairy.milkman.messages.outgoing.OutgoingMessage
 abstract class IncomingMessage : Message {
 	open fun generateResponse() : OutgoingMessage? = null
 	open fun internalProcess() {}
+
+	/**
+	 * for messages that act on the socket they arrived on, defaults to [internalProcess]
+	 */
+	open fun internalProcess(milkManWebSocket: MilkManWebSocket) = internalProcess()
 	final override fun process(milkManWebSocket: MilkManWebSocket) {
-		internalProcess()
+		internalProcess(milkManWebSocket)
 		val response = generateResponse()
 		response?.run {
 			milkManWebSocket.send(response)
@@ -1,9 +1,15 @@
 package dev.frozenmilk.dairy.milkman.messages.incoming
 
 import dev.frozenmilk.dairy.milkman.MilkMan
+import dev.frozenmilk.dairy.milkman.messages.BinaryWriter
 import dev.frozenmilk.dairy.milkman.messages.MessageType
 
 class InitOpMode(val name: String) : IncomingMessage() {
 	override val type: MessageType = MessageType.INIT_OP_MODE
 	override fun internalProcess() = MilkMan.initOpMode(name)
+
+	override fun writeBinary(writer: BinaryWriter) {
+		writer.writeType(type)
+				.writeString(name)
+	}
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package dev.frozenmilk.dairy.milkman.messages.incoming
+
+import dev.frozenmilk.dairy.milkman.MilkManWebSocket
+import dev.frozenmilk.dairy.milkman.messages.BinaryWriter
+import dev.frozenmilk.dairy.milkman.messages.MessageType
+
+/**
+ * subscribes the socket to the live telemetry of [groups], or every group if [groups] is empty or left out
+ *
+ * a keyframe is sent for each newly subscribed group at the next publication
+ */
+class SubscribeTelemetry(val groups: List<String>?) : IncomingMessage() {
+	override val type: MessageType = MessageType.SUBSCRIBE_TELEMETRY
+
+	override fun internalProcess(milkManWebSocket: MilkManWebSocket) {
+		milkManWebSocket.telemetrySubscription.subscribe(groups.orEmpty())
+		milkManWebSocket.milkManWSD.telemetryChannel.requestKeyframes(groups.orEmpty())
+	}
+
+	override fun writeBinary(writer: BinaryWriter) {
+		writer.writeType(type)
+				.writeVarInt(groups?.size ?: 0)
+		groups?.forEach { writer.writeString(it) }
+	}
+}
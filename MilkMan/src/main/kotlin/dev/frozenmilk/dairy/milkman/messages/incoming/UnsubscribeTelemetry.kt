@@ -0,0 +1,22 @@
+package dev.frozenmilk.dairy.milkman.messages.incoming
+
+import dev.frozenmilk.dairy.milkman.MilkManWebSocket
+import dev.frozenmilk.dairy.milkman.messages.BinaryWriter
+import dev.frozenmilk.dairy.milkman.messages.MessageType
+
+/**
+ * stops sending the live telemetry of [groups] to the socket, or of every group if [groups] is empty
+ */
+class UnsubscribeTelemetry(val groups: List<String>?) : IncomingMessage() {
+	override val type: MessageType = MessageType.UNSUBSCRIBE_TELEMETRY
+
+	override fun internalProcess(milkManWebSocket: MilkManWebSocket) {
+		milkManWebSocket.telemetrySubscription.unsubscribe(groups.orEmpty())
+	}
+
+	override fun writeBinary(writer: BinaryWriter) {
+		writer.writeType(type)
+				.writeVarInt(groups?.size ?: 0)
+		groups?.forEach { writer.writeString(it) }
+	}
+}
@@ -4,5 +4,13 @@ import dev.frozenmilk.dairy.milkman.MilkManWebSocket
 import dev.frozenmilk.dairy.milkman.messages.Message
 
 abstract class OutgoingMessage: Message {
+	/**
+	 * waiting messages with the same key are replaced by newer ones, rather than both being sent, null if every message must be sent
+	 *
+	 * snapshots of state should use their [type], deltas must use null
+	 */
+	open val coalesceKey: Any?
+		get() = null
+
 	final override fun process(milkManWebSocket: MilkManWebSocket) {}
 }
\ No newline at end of file
@@ -1,17 +1,39 @@
 package dev.frozenmilk.dairy.milkman.messages.outgoing
 
 import dev.frozenmilk.dairy.milkman.MilkMan
+import dev.frozenmilk.dairy.milkman.messages.BinaryWriter
 import dev.frozenmilk.dairy.milkman.messages.MessageType
 import org.firstinspires.ftc.robotcore.internal.opmode.OpModeMeta
 
-class ReturnOpModeMetaData() : OutgoingMessage() {
+/**
+ * use [current], the constructor is only exposed for tests, [current] only rebuilds the grouped metadata when [MilkMan.opModeRegistry] changes
+ */
+class ReturnOpModeMetaData internal constructor(val metadata: Map<String, List<OpModeMetaData>>) : OutgoingMessage() {
 	override val type: MessageType = MessageType.RETURN_OP_MODE_META_DATA
+	override val coalesceKey: Any
+		get() = type
 
-	val metadata =
-			MilkMan.registeredOpModes()
-			.filter { it.flavor != OpModeMeta.Flavor.SYSTEM }
-			.doubleGroupSort()
+	// the message doesn't change once built, so neither does its json
+	@Transient
+	private var json: String? = null
 
+	override fun toJson(): String = json ?: super.toJson().also { json = it }
+
+	/**
+	 * a count of flavours, then for each, its name, and a count of op modes, then the name and group of each
+	 */
+	override fun writeBinary(writer: BinaryWriter) {
+		writer.writeType(type)
+				.writeVarInt(metadata.size)
+		metadata.forEach { (flavour, opModes) ->
+			writer.writeString(flavour)
+					.writeVarInt(opModes.size)
+			opModes.forEach {
+				writer.writeString(it.name)
+						.writeString(it.group)
+			}
+		}
+	}
 
 //	private fun List<OpModeMeta>.groupSort() : List<List<OpModeMetaData>> = this
 //			.groupBy { it.flavor }
@@ -21,21 +43,43 @@ class ReturnOpModeMetaData() : OutgoingMessage() {
 //			.map { typed -> typed.flatMap { (_, v) -> v.sortedBy{ it.name } } }
 //			.map { list -> list.map { OpModeMetaData(it) } }
 
-	private fun List<OpModeMeta>.doubleGroupSort() = this
-			.groupBy { it.flavor.name }
-			.toSortedMap()
-			.mapValues { flavour ->
-				flavour.value
-						.map { OpModeMetaData(it) }
-						.groupBy { it.group }
-						.toSortedMap()
-						.mapValues { group ->
-							group.value.sortedBy { it.name }
-						}
-						.flatMap { it.value }
-			}
-
 	data class OpModeMetaData(val name: String, val group: String) {
 		constructor(meta: OpModeMeta) : this(meta.name, meta.group)
 	}
+
+	companion object {
+		private var cached: ReturnOpModeMetaData? = null
+		private var cachedVersion = 0L
+
+		@JvmStatic
+		@Synchronized
+		fun current(): ReturnOpModeMetaData {
+			val registry = MilkMan.opModeRegistry
+			// the version is read before the value, so a refresh in between leaves the cache looking older than it is, not newer
+			registry.get()
+			val version = registry.version
+			cached?.let { if (version == cachedVersion) return it }
+			return ReturnOpModeMetaData(registry.get()
+					.filter { it.flavor != OpModeMeta.Flavor.SYSTEM }
+					.doubleGroupSort())
+					.also {
+						cached = it
+						cachedVersion = version
+					}
+		}
+
+		private fun List<OpModeMeta>.doubleGroupSort() = this
+				.groupBy { it.flavor.name }
+				.toSortedMap()
+				.mapValues { flavour ->
+					flavour.value
+							.map { OpModeMetaData(it) }
+							.groupBy { it.group }
+							.toSortedMap()
+							.mapValues { group ->
+								group.value.sortedBy { it.name }
+							}
+							.flatMap { it.value }
+				}
+	}
 }
\ No newline at end of file
@@ -1,11 +1,27 @@
 package dev.frozenmilk.dairy.milkman.messages.outgoing
 
 import dev.frozenmilk.dairy.core.FeatureRegistrar
+import dev.frozenmilk.dairy.milkman.messages.BinaryWriter
 import dev.frozenmilk.dairy.milkman.messages.MessageType
 
-class RobotState() : OutgoingMessage() {
+class RobotState(val activeOpModeName: String, val opModeState: String, val flavour: String) : OutgoingMessage() {
+	/**
+	 * the current state, read from the [FeatureRegistrar]
+	 */
+	constructor() : this(
+			FeatureRegistrar.activeOpMode?.name ?: "INTERNAL ERR: OpMode name unknown",
+			FeatureRegistrar.opModeState.name,
+			FeatureRegistrar.activeOpMode?.opModeType?.name ?: "SYSTEM",
+	)
+
 	override val type: MessageType = MessageType.ROBOT_STATE
-	val activeOpModeName = FeatureRegistrar.activeOpMode?.name ?: "INTERNAL ERR: OpMode name unknown"
-	val opModeState = FeatureRegistrar.opModeState
-	val flavour = FeatureRegistrar.activeOpMode?.opModeType?.name ?: "SYSTEM"
+	override val coalesceKey: Any
+		get() = type
+
+	override fun writeBinary(writer: BinaryWriter) {
+		writer.writeType(type)
+				.writeString(activeOpModeName)
+				.writeString(opModeState)
+				.writeString(flavour)
+	}
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package dev.frozenmilk.dairy.milkman.messages.outgoing
+
+import dev.frozenmilk.dairy.milkman.messages.BinaryWriter
+import dev.frozenmilk.dairy.milkman.messages.MessageType
+
+/**
+ * the lines of a DataCarton group that changed since the last frame for that group, keyed by label
+ *
+ * a [keyframe] holds every line of the group, and is sent when a client subscribes, clients should apply other frames on top of the last keyframe
+ *
+ * @param sequence increases with each publication, frames that were superseded before they could be sent are merged into the next, so gaps are expected
+ */
+class TelemetryFrame(sequence: Long, val group: String, keyframe: Boolean, val changes: LinkedHashMap<String, String>) : OutgoingMessage() {
+	override val type: MessageType = MessageType.TELEMETRY_FRAME
+
+	var sequence = sequence
+		private set
+
+	var keyframe = keyframe
+		private set
+
+	/**
+	 * folds [newer] into this frame, so that this frame can be sent in its place
+	 */
+	fun merge(newer: TelemetryFrame): TelemetryFrame {
+		changes.putAll(newer.changes)
+		sequence = newer.sequence
+		keyframe = keyframe || newer.keyframe
+		return this
+	}
+
+	/**
+	 * the sequence, group, and keyframe flag, then a count of changes, then the label and value of each
+	 */
+	override fun writeBinary(writer: BinaryWriter) {
+		writer.writeType(type)
+				.writeVarLong(sequence)
+				.writeString(group)
+				.writeBoolean(keyframe)
+				.writeVarInt(changes.size)
+		changes.forEach { (label, value) ->
+			writer.writeString(label)
+					.writeString(value)
+		}
+	}
+}
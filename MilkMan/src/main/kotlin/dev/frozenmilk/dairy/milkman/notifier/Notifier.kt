@@ -5,15 +5,20 @@ import dev.frozenmilk.dairy.milkman.MilkManWSD
 import dev.frozenmilk.dairy.milkman.messages.outgoing.OutgoingMessage
 import java.util.function.Supplier
 
-class Notifier(val milkManWSD: MilkManWSD, var delta: Supplier<Any?>, var messageMaker: Supplier<OutgoingMessage>) {
-	private var prev: Any? = null
+/**
+ * sends a message made by [messageMaker] to all sockets each time the version of [state] changes
+ *
+ * polling only compares versions, the state is refreshed by whatever knows it may have changed
+ */
+class Notifier(val milkManWSD: MilkManWSD, val state: VersionedState<*>, var messageMaker: Supplier<OutgoingMessage>) {
+	private var seen = 0L
 
 	fun poll() {
-		val new = delta.get()
-		if (new != prev) {
-			RobotLog.vv("MilkMan", "notifying about $new")
+		val version = state.version
+		if (version != seen) {
+			RobotLog.vv("MilkMan", "notifying about version $version")
 			milkManWSD.sendToAllSockets(messageMaker.get())
-			prev = new
+			seen = version
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,44 @@
+package dev.frozenmilk.dairy.milkman.notifier
+
+import java.util.function.Supplier
+
+/**
+ * holds the last value read from [source], and a [version] that is bumped each time [refresh] finds it has changed
+ *
+ * [refresh] should be called only where the state might have changed, anything watching the state can then check for changes by comparing [version]
+ */
+class VersionedState<T>(private val source: Supplier<T>) {
+	/**
+	 * 0 until the first [refresh]
+	 */
+	@Volatile
+	var version = 0L
+		private set
+
+	@Volatile
+	private var value: T? = null
+
+	/**
+	 * reads [source], bumping [version] if the value is not equal to the last one
+	 *
+	 * @return the version after reading
+	 */
+	@Synchronized
+	fun refresh(): Long {
+		val new = source.get()
+		if (version == 0L || new != value) {
+			value = new
+			version++
+		}
+		return version
+	}
+
+	/**
+	 * the value as of the last [refresh], refreshing if it has never been read
+	 */
+	@Suppress("UNCHECKED_CAST")
+	fun get(): T {
+		if (version == 0L) refresh()
+		return value as T
+	}
+}
@@ -0,0 +1,68 @@
+package dev.frozenmilk.dairy.milkman.telemetry
+
+import datacarton.CartonComponentRenderer
+import datacarton.DataBlock
+import datacarton.DataLine
+import datacarton.processors.PublicationProcessor
+import dev.frozenmilk.dairy.milkman.MilkMan
+import dev.frozenmilk.dairy.milkman.messages.outgoing.TelemetryFrame
+
+/**
+ * streams the [DataBlock]s of each group to MilkMan clients that subscribed to it, as [TelemetryFrame]s holding only the lines that changed
+ *
+ * nothing is built while no client is subscribed
+ */
+class MilkManPublicationProcessor @JvmOverloads constructor(private val channel: TelemetryChannel = MilkMan.telemetryChannel) : PublicationProcessor {
+	private class GroupState(val lines: Array<DataLine>) {
+		val previous = arrayOfNulls<String>(lines.size)
+		var keyframeEpoch = -1
+	}
+
+	// keyed by renderer, as repackaging builds new renderers with the same titles
+	private val groups = HashMap<CartonComponentRenderer, GroupState>()
+	private var sequence = 0L
+	private var subscribed = false
+
+	override fun initPublication() {
+		sequence++
+		subscribed = channel.hasSubscribers
+	}
+
+	override fun accept(p0: CartonComponentRenderer) {
+		if (!subscribed || !p0.due) return
+		val state = groups.getOrPut(p0) {
+			GroupState(p0.cartonComponents
+					.filterIsInstance<DataBlock>()
+					.flatMap { it.dataLines }
+					.filterNotNull()
+					.toTypedArray())
+		}
+		if (state.lines.isEmpty()) return
+
+		val epoch = channel.keyframeEpoch
+		// both are checked, so that neither request is left waiting
+		val requested = channel.consumeKeyframeRequest(p0.title)
+		val keyframe = requested || state.keyframeEpoch != epoch
+		state.keyframeEpoch = epoch
+
+		var changes: LinkedHashMap<String, String>? = null
+		for (i in state.lines.indices) {
+			val line = state.lines[i]
+			val value = line.contents.get()
+			if (!keyframe && value == state.previous[i]) continue
+			state.previous[i] = value
+			if (changes == null) changes = LinkedHashMap()
+			changes[line.label] = value
+		}
+		if (changes != null) channel.offer(TelemetryFrame(sequence, p0.title, keyframe, changes))
+	}
+
+	override fun updatePublication() {
+	}
+
+	override fun ignoreUpdate(): Boolean = false
+
+	override fun close() {
+		groups.clear()
+	}
+}
@@ -0,0 +1,100 @@
+package dev.frozenmilk.dairy.milkman.telemetry
+
+import dev.frozenmilk.dairy.milkman.MilkManWSD
+import dev.frozenmilk.dairy.milkman.messages.outgoing.TelemetryFrame
+import java.util.concurrent.ConcurrentHashMap
+import java.util.function.Consumer
+
+/**
+ * hands [TelemetryFrame]s from the publication thread to the I/O thread of the [server], so a slow client never holds up publication
+ *
+ * at most one frame per group waits to be sent, a newer frame for the same group is merged into the waiting one, so stale values get dropped rather than queued
+ */
+class TelemetryChannel {
+	/**
+	 * the server frames are sent through, set by the [MilkManWSD] this channel is given to
+	 */
+	@Volatile
+	var server: MilkManWSD? = null
+		internal set
+
+	private val lock = Object()
+	private val pending = LinkedHashMap<String, TelemetryFrame>()
+	// only touched by the I/O thread
+	private val batch = ArrayList<TelemetryFrame>()
+
+	private val keyframeRequests: MutableSet<String> = ConcurrentHashMap.newKeySet()
+
+	/**
+	 * increments each time a socket subscribes to every group, each group sends a keyframe when it sees a new epoch
+	 */
+	@Volatile
+	var keyframeEpoch = 0
+		private set
+
+	/**
+	 * the number of frames that were merged into a newer one before they could be sent
+	 */
+	@Volatile
+	var droppedFrames = 0L
+		private set
+
+	/**
+	 * the number of frames handed to the server to be sent
+	 */
+	@Volatile
+	var sentFrames = 0L
+		private set
+
+	/**
+	 * true if any connected socket is subscribed to a group, publication can skip building frames if not
+	 */
+	val hasSubscribers: Boolean
+		get() = server?.hasTelemetrySubscribers == true
+
+	/**
+	 * requests a keyframe at the next publication of each of [groups], or of every group if [groups] is empty
+	 */
+	fun requestKeyframes(groups: Collection<String>) {
+		if (groups.isEmpty()) keyframeEpoch++
+		else keyframeRequests.addAll(groups)
+	}
+
+	/**
+	 * true, once, if a keyframe was requested for [group]
+	 */
+	fun consumeKeyframeRequest(group: String) = keyframeRequests.remove(group)
+
+	/**
+	 * queues [frame] to be sent, never blocks on the network
+	 */
+	fun offer(frame: TelemetryFrame) {
+		synchronized(lock) {
+			val waiting = pending[frame.group]
+			if (waiting != null) {
+				waiting.merge(frame)
+				droppedFrames++
+			}
+			else pending[frame.group] = frame
+		}
+		server?.wake()
+	}
+
+	/**
+	 * passes the waiting frames, oldest group first, to [consumer], called by the I/O thread of the [server]
+	 */
+	fun drain(consumer: Consumer<TelemetryFrame>) {
+		synchronized(lock) {
+			if (pending.isEmpty()) return
+			batch.addAll(pending.values)
+			pending.clear()
+		}
+		try {
+			batch.forEach(consumer)
+			sentFrames += batch.size
+		}
+		finally {
+			batch.clear()
+		}
+	}
+}
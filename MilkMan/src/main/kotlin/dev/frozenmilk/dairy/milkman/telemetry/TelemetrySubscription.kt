@@ -0,0 +1,41 @@
+package dev.frozenmilk.dairy.milkman.telemetry
+
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * the DataCarton groups a socket receives live telemetry for
+ *
+ * unsubscribing from some groups after subscribing to all of them has no effect, unsubscribe from all of them first
+ */
+class TelemetrySubscription {
+	@Volatile
+	private var all = false
+	private val groups: MutableSet<String> = ConcurrentHashMap.newKeySet()
+
+	/**
+	 * true if this is subscribed to any group
+	 */
+	val active: Boolean
+		get() = all || groups.isNotEmpty()
+
+	/**
+	 * subscribes to [groups], or every group if [groups] is empty
+	 */
+	fun subscribe(groups: Collection<String>) {
+		if (groups.isEmpty()) all = true
+		else this.groups.addAll(groups)
+	}
+
+	/**
+	 * unsubscribes from [groups], or every group if [groups] is empty
+	 */
+	fun unsubscribe(groups: Collection<String>) {
+		if (groups.isEmpty()) {
+			all = false
+			this.groups.clear()
+		}
+		else this.groups.removeAll(groups.toSet())
+	}
+
+	fun includes(group: String) = all || group in groups
+}
@@ -0,0 +1,167 @@
+import dev.frozenmilk.dairy.milkman.messages.BinaryMessageDecoder
+import dev.frozenmilk.dairy.milkman.messages.BinaryReader
+import dev.frozenmilk.dairy.milkman.messages.BinaryWriter
+import dev.frozenmilk.dairy.milkman.messages.Message
+import dev.frozenmilk.dairy.milkman.messages.MessageType
+import dev.frozenmilk.dairy.milkman.messages.incoming.GetOpModeMetaData
+import dev.frozenmilk.dairy.milkman.messages.incoming.InitOpMode
+import dev.frozenmilk.dairy.milkman.messages.incoming.StartOpMode
+import dev.frozenmilk.dairy.milkman.messages.incoming.StopOpMode
+import dev.frozenmilk.dairy.milkman.messages.incoming.SubscribeTelemetry
+import dev.frozenmilk.dairy.milkman.messages.incoming.UnsubscribeTelemetry
+import dev.frozenmilk.dairy.milkman.messages.outgoing.ReturnOpModeMetaData
+import dev.frozenmilk.dairy.milkman.messages.outgoing.RobotState
+import dev.frozenmilk.dairy.milkman.messages.outgoing.TelemetryFrame
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Test
+import java.io.IOException
+
+class BinaryCodecTest {
+    private fun encode(message: Message): ByteArray {
+        val writer = BinaryWriter(4)
+        message.writeBinary(writer)
+        return writer.toByteArray()
+    }
+
+    private fun assertThrowsIOException(block: () -> Unit) {
+        try {
+            block()
+            fail("expected an IOException")
+        }
+        catch (e: IOException) {
+        }
+    }
+
+    @Test
+    fun tagsArePinned() {
+        // these are the protocol, clients break if any of them change
+        val expected = mapOf(
+                MessageType.GET_OP_MODE_META_DATA to 0,
+                MessageType.INIT_OP_MODE to 1,
+                MessageType.START_OP_MODE to 2,
+                MessageType.STOP_OP_MODE to 3,
+                MessageType.RETURN_OP_MODE_META_DATA to 4,
+                MessageType.ROBOT_STATE to 5,
+                MessageType.SUBSCRIBE_TELEMETRY to 6,
+                MessageType.UNSUBSCRIBE_TELEMETRY to 7,
+                MessageType.TELEMETRY_FRAME to 8,
+        )
+        assertEquals(MessageType.values().toSet(), expected.keys)
+        expected.forEach { (type, tag) ->
+            assertEquals(type.name, tag, type.tag)
+            assertEquals(type, MessageType.fromTag(tag))
+            assertArrayEquals(byteArrayOf(tag.toByte()), BinaryWriter().writeType(type).toByteArray())
+        }
+        assertNull(MessageType.fromTag(-1))
+        assertNull(MessageType.fromTag(9))
+    }
+
+    @Test
+    fun incomingRoundTrip() {
+        assertTrue(BinaryMessageDecoder.decode(encode(GetOpModeMetaData())) is GetOpModeMetaData)
+        assertTrue(BinaryMessageDecoder.decode(encode(StartOpMode())) is StartOpMode)
+        assertTrue(BinaryMessageDecoder.decode(encode(StopOpMode())) is StopOpMode)
+
+        val init = BinaryMessageDecoder.decode(encode(InitOpMode("Tele Op ✓"))) as InitOpMode
+        assertEquals("Tele Op ✓", init.name)
+
+        val subscribe = BinaryMessageDecoder.decode(encode(SubscribeTelemetry(listOf("drive", "", "arm")))) as SubscribeTelemetry
+        assertEquals(listOf("drive", "", "arm"), subscribe.groups)
+        // null means every group, and is sent as an empty list
+        val subscribeAll = BinaryMessageDecoder.decode(encode(SubscribeTelemetry(null))) as SubscribeTelemetry
+        assertEquals(emptyList<String>(), subscribeAll.groups)
+
+        val unsubscribe = BinaryMessageDecoder.decode(encode(UnsubscribeTelemetry(listOf("arm")))) as UnsubscribeTelemetry
+        assertEquals(listOf("arm"), unsubscribe.groups)
+    }
+
+    @Test
+    fun outgoingRoundTrip() {
+        // outgoing messages are never decoded by the robot, so these are read back field by field, in the order the layout documents
+        var reader = BinaryReader(encode(RobotState("Auto", "ACTIVE", "AUTONOMOUS")))
+        assertEquals(MessageType.ROBOT_STATE, reader.readType())
+        assertEquals("Auto", reader.readString())
+        assertEquals("ACTIVE", reader.readString())
+        assertEquals("AUTONOMOUS", reader.readString())
+        assertEquals(0, reader.remaining)
+
+        val metadata = linkedMapOf(
+                "AUTONOMOUS" to listOf(ReturnOpModeMetaData.OpModeMetaData("Left", "Auto"), ReturnOpModeMetaData.OpModeMetaData("Right", "Auto")),
+                "TELEOP" to listOf(ReturnOpModeMetaData.OpModeMetaData("Drive", "")),
+        )
+        reader = BinaryReader(encode(ReturnOpModeMetaData(metadata)))
+        assertEquals(MessageType.RETURN_OP_MODE_META_DATA, reader.readType())
+        val decoded = LinkedHashMap<String, List<ReturnOpModeMetaData.OpModeMetaData>>()
+        repeat(reader.readVarInt()) {
+            val flavour = reader.readString()
+            decoded[flavour] = List(reader.readVarInt()) { ReturnOpModeMetaData.OpModeMetaData(reader.readString(), reader.readString()) }
+        }
+        assertEquals(metadata, decoded)
+        assertEquals(0, reader.remaining)
+
+        val changes = linkedMapOf("x" to "1.0", "heading" to "90°")
+        reader = BinaryReader(encode(TelemetryFrame(1L shl 40, "drive", true, changes)))
+        assertEquals(MessageType.TELEMETRY_FRAME, reader.readType())
+        assertEquals(1L shl 40, reader.readVarLong())
+        assertEquals("drive", reader.readString())
+        assertEquals(true, reader.readBoolean())
+        val decodedChanges = LinkedHashMap<String, String>()
+        repeat(reader.readVarInt()) { decodedChanges[reader.readString()] = reader.readString() }
+        assertEquals(changes, decodedChanges)
+        assertEquals(0, reader.remaining)
+    }
+
+    @Test
+    fun varintEdgeCases() {
+        val writer = BinaryWriter(1)
+        val ints = intArrayOf(0, 1, 127, 128, 16383, 16384, (1 shl 28) - 1, 1 shl 28, (1 shl 28) + 1, Int.MAX_VALUE, -1, Int.MIN_VALUE)
+        ints.forEach { writer.writeVarInt(it) }
+        val longs = longArrayOf(0L, 1L shl 28, (1L shl 35) + 3, Long.MAX_VALUE, -1L, Long.MIN_VALUE)
+        longs.forEach { writer.writeVarLong(it) }
+        val signed = longArrayOf(0L, -1L, 1L, -64L, 64L, -(1L shl 40), Long.MAX_VALUE, Long.MIN_VALUE)
+        signed.forEach { writer.writeSignedVarLong(it) }
+        writer.writeDouble(-0.5)
+
+        val reader = BinaryReader(writer.toByteArray())
+        ints.forEach { assertEquals(it, reader.readVarInt()) }
+        longs.forEach { assertEquals(it, reader.readVarLong()) }
+        signed.forEach { assertEquals(it, reader.readSignedVarLong()) }
+        assertEquals(-0.5, reader.readDouble(), 0.0)
+        assertEquals(0, reader.remaining)
+    }
+
+    @Test
+    fun varintSizes() {
+        fun size(value: Int) = BinaryWriter().writeVarInt(value).size
+        assertEquals(1, size(0))
+        assertEquals(1, size(127))
+        assertEquals(2, size(128))
+        assertEquals(4, size((1 shl 28) - 1))
+        assertEquals(5, size(1 shl 28))
+        // negative ints are sent as unsigned 32 bit, not sign extended to 10 bytes
+        assertEquals(5, size(-1))
+        assertEquals(1, BinaryWriter().writeSignedVarLong(-1).size)
+        assertEquals(10, BinaryWriter().writeVarLong(-1).size)
+    }
+
+    @Test
+    fun malformedInput() {
+        // a varint that never ends
+        assertThrowsIOException { BinaryReader(ByteArray(11) { 0x80.toByte() }).readVarLong() }
+        // a varint cut short
+        assertThrowsIOException { BinaryReader(byteArrayOf(0x80.toByte())).readVarInt() }
+        // a string longer than the message
+        assertThrowsIOException { BinaryMessageDecoder.decode(byteArrayOf(1, 10, 'a'.code.toByte())) }
+        // a list longer than the message
+        assertThrowsIOException { BinaryMessageDecoder.decode(byteArrayOf(6, 100)) }
+        assertThrowsIOException { BinaryReader(byteArrayOf(1, 2, 3)).readDouble() }
+        assertThrowsIOException { BinaryReader(ByteArray(0)).readBoolean() }
+        // unknown and outgoing tags aren't decoded
+        assertNull(BinaryMessageDecoder.decode(byteArrayOf(100)))
+        assertNull(BinaryMessageDecoder.decode(encode(RobotState("a", "b", "c"))))
+    }
+}
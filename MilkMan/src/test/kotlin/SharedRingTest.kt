@@ -0,0 +1,113 @@
+import dev.frozenmilk.dairy.milkman.bridge.JvmRingReader
+import dev.frozenmilk.dairy.milkman.bridge.RingPublisher
+import dev.frozenmilk.dairy.milkman.bridge.SharedRing
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.nio.ByteBuffer
+
+class SharedRingTest {
+    // 20 bytes, so each record takes 24 bytes of the ring, with its length
+    private fun record(id: Char) = id.toString().repeat(20)
+
+    private fun drain(reader: JvmRingReader): List<String> {
+        val records = ArrayList<String>()
+        reader.drain { records.add(String(it, Charsets.UTF_8)) }
+        return records
+    }
+
+    @Test
+    fun onlyPublishedRecordsAreRead() {
+        val reader = JvmRingReader()
+        val ring = SharedRing(1024, reader)
+        assertTrue(ring.attached)
+        assertTrue(ring.write("a"))
+        assertTrue(ring.write("bc"))
+        assertEquals(emptyList<String>(), drain(reader))
+        ring.publish()
+        assertTrue(ring.write("not yet"))
+        assertEquals(listOf("a", "bc"), drain(reader))
+        ring.publish()
+        assertEquals(listOf("not yet"), drain(reader))
+        assertEquals(emptyList<String>(), drain(reader))
+        assertEquals(0L, ring.droppedRecords)
+    }
+
+    @Test
+    fun wrapsAround() {
+        val reader = JvmRingReader()
+        val ring = SharedRing(64, reader)
+        assertTrue(ring.write(record('a')))
+        assertTrue(ring.write(record('b')))
+        ring.publish()
+        assertEquals(listOf(record('a'), record('b')), drain(reader))
+
+        // 16 bytes are left at the end, too few for the next record, so it starts back at the beginning
+        assertTrue(ring.write(record('c')))
+        assertEquals(SharedRing.WRAP, ring.buffer.getInt(SharedRing.DATA_OFFSET + 48))
+        assertTrue(ring.write(record('d')))
+        ring.publish()
+        assertEquals(listOf(record('c'), record('d')), drain(reader))
+        assertEquals(112L, ring.buffer.getLong(SharedRing.TAIL_OFFSET))
+
+        // and keeps going round
+        repeat(10) {
+            val id = 'e' + it
+            assertTrue(ring.write(record(id)))
+            ring.publish()
+            assertEquals(listOf(record(id)), drain(reader))
+        }
+        assertEquals(0L, ring.droppedRecords)
+    }
+
+    @Test
+    fun dropsWhenFull() {
+        val reader = JvmRingReader()
+        val ring = SharedRing(64, reader)
+        assertTrue(ring.write(record('a')))
+        assertTrue(ring.write(record('b')))
+        // the reader hasn't freed anything, and the wrap would need the space it is still reading
+        assertFalse(ring.write(record('c')))
+        assertFalse(ring.write(record('d')))
+        assertEquals(2L, ring.droppedRecords)
+        // too big to ever fit
+        assertFalse(ring.write(ByteArray(64)))
+        assertEquals(3L, ring.droppedRecords)
+
+        ring.publish()
+        assertEquals(listOf(record('a'), record('b')), drain(reader))
+        // the dropped records are gone, not late
+        assertTrue(ring.write(record('e')))
+        ring.publish()
+        assertEquals(listOf(record('e')), drain(reader))
+        assertEquals(3L, ring.droppedRecords)
+    }
+
+    @Test
+    fun refusedRingWritesNothing() {
+        val refusing = object : RingPublisher {
+            override fun attach(buffer: ByteBuffer) = false
+            override fun publish(buffer: ByteBuffer, head: Long) = throw AssertionError("nothing was written")
+        }
+        val ring = SharedRing(64, refusing)
+        assertFalse(ring.attached)
+        assertFalse(ring.write("a"))
+        ring.publish()
+
+        // a reader only reads one ring
+        val reader = JvmRingReader()
+        assertTrue(SharedRing(64, reader).attached)
+        assertFalse(SharedRing(64, reader).attached)
+    }
+
+    @Test
+    fun layout() {
+        val ring = SharedRing(70, JvmRingReader())
+        // rounded down to a multiple of 4
+        assertEquals(68, ring.capacity)
+        assertEquals(SharedRing.MAGIC, ring.buffer.getInt(SharedRing.MAGIC_OFFSET))
+        assertEquals(68, ring.buffer.getInt(SharedRing.CAPACITY_OFFSET))
+        assertEquals(SharedRing.DATA_OFFSET + 68, ring.buffer.capacity())
+    }
+}
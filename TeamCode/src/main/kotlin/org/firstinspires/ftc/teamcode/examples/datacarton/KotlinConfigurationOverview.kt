@@ -8,10 +8,13 @@ import datacarton.MessageBoardRender
 import datacarton.Render
 import datacarton.RenderOrder
 import datacarton.processors.DataPackageProcessor
+import datacarton.processors.DeltaTelemetryPublicationProcessor
 import datacarton.processors.DataLogPublicationProcessor
+import datacarton.processors.FlightRecorderPublicationProcessor
 import datacarton.processors.MessageLogPublicationProcessor
 import datacarton.processors.TelemetryPublicationProcessor
 import dev.frozenmilk.dairy.core.FeatureRegistrar
+import log.DataLogFormat
 
 @TeleOp
 @DataCarton.Attach( // attaches the Calcified feature
@@ -52,6 +55,25 @@ class KotlinConfigurationOverview : OpMode() {
 				DataLogPublicationProcessor("ConfigurationOpMode") // varargs attach additional processors
 		)
 
+		// the DataLogPublicationProcessor can also write a compact binary format, which is much smaller for long runs
+		// use log.ColumnarLogReader on your computer to convert these files to csv
+		DataCarton.initFromTelemetry(
+				telemetry,
+				RenderOrder.BLOCK_FIRST_MESSAGE_FORWARD,
+				DataLogPublicationProcessor("ConfigurationOpMode", format = DataLogFormat.COLUMNAR)
+		)
+
+		// the FlightRecorderPublicationProcessor keeps the last few seconds of data in memory,
+		// and only writes it out when something goes wrong, like a black box
+		val flightRecorder = FlightRecorderPublicationProcessor("ConfigurationOpMode", seconds = 10.0)
+				// record whenever this becomes true, e.g. a motor drawing too much current
+				.triggerWhen("over current") { false }
+				// record if the app is about to crash
+				.triggerOnUncaughtException()
+		DataCarton.initFromTelemetry(telemetry, RenderOrder.DEFAULT_MAPPING, flightRecorder)
+		// recordings can also be triggered by hand
+		flightRecorder.trigger("driver requested")
+
 		// a default init without telemetry
 		DataCarton.initWithDefaultPackageProcessors()
 
@@ -74,6 +96,8 @@ class KotlinConfigurationOverview : OpMode() {
 
 		DataCarton.publicationProcessors.add(MessageLogPublicationProcessor("ConfigurationOpMode"))
 		DataCarton.publicationProcessors.add(TelemetryPublicationProcessor(telemetry))
+		// alternatively, this telemetry output only rewrites groups that changed, and skips transmitting telemetry when nothing did
+//		DataCarton.publicationProcessors.add(DeltaTelemetryPublicationProcessor(telemetry))
 
 		// customising the settings
 
@@ -93,6 +117,11 @@ class KotlinConfigurationOverview : OpMode() {
 				// set to use the default data block followed by the default reverse message board
 				.with(Render.DEFAULT_DATA_BLOCK)
 				.with(Render.DEFAULT_REVERSE_MESSAGE_BOARD)
+				// only read and publish this group 5 times a second, rather than every loop
+				// useful for diagnostic data that doesn't need to be logged at loop rate
+				.withPublishRate(5.0)
+				// groups with a higher priority are published first, defaults to 0
+				.withPriority(-1)
 				// configure settings for the group named custom named group
 				.configureFor("custom named group")
 				// specify settings for the MessageBoardRender
@@ -2,14 +2,18 @@ package org.firstinspires.ftc.teamcode.examples.datacarton
 
 import com.qualcomm.robotcore.eventloop.opmode.OpMode
 import com.qualcomm.robotcore.eventloop.opmode.TeleOp
+import com.qualcomm.robotcore.hardware.DcMotorEx
 import datacarton.DataCarton
 import datacarton.Render
 import datacarton.annotations.Data
 import datacarton.annotations.Import
 import datacarton.annotations.Pack
+import datacarton.annotations.Sample
 import datacarton.processors.DataLogPublicationProcessor
 import datacarton.processors.MessageLogPublicationProcessor
+import datacarton.processors.SampleLogPublicationProcessor
 import dev.frozenmilk.dairy.core.FeatureRegistrar
+import org.firstinspires.ftc.robotcore.external.navigation.CurrentUnit
 
 @TeleOp
 @DataCarton.Attach( // attaches the Calcified feature
@@ -83,6 +87,18 @@ class KotlinImplementationOverview : OpMode() {
 	)
 	val motorPosition = 0.0
 
+	// @Sample additionally captures a @Data member at a steady rate, on its own thread, independent of the loop
+	// the samples are timestamped, and can be written to their own logs by the SampleLogPublicationProcessor
+	// useful for logging encoder or current readings for analysis later
+	// sample a getter, a final field would just be sampled as the same value over and over
+	// getters that aren't private are called directly, without boxing the result, when the DataCartonProcessor runs on this module (see TeamCode's build.gradle)
+	// otherwise they are called through reflection, and the result is boxed every sample
+	private lateinit var motor: DcMotorEx
+
+	@Data
+	@Sample(rate = 200.0)
+	fun motorCurrent(): Double = motor.getCurrent(CurrentUnit.AMPS)
+
 	// now take a look at the Container class, and see what data will be pulled out of it
 	// or look here, to see a practical showing of setting up DataCarton looks like,
 	// and how to send a message
@@ -101,9 +117,12 @@ class KotlinImplementationOverview : OpMode() {
 		// all other init stuff
 		// its fine to use normal telemetry here
 
+		motor = hardwareMap.get(DcMotorEx::class.java, "motor")
+
 		DataCarton.initFromTelemetry(telemetry)
 		DataCarton.publicationProcessors.add(DataLogPublicationProcessor("ImplementationOpMode"))
 		DataCarton.publicationProcessors.add(MessageLogPublicationProcessor("ImplementationOpMode"))
+		DataCarton.publicationProcessors.add(SampleLogPublicationProcessor("ImplementationOpMode"))
 
 		DataCarton.configureFor("opmode messages").with(Render.DEFAULT_REVERSE_MESSAGE_BOARD)
 